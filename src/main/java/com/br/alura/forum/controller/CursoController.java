@@ -5,8 +5,16 @@ import com.filiperobot.aluraforumapi.domain.course.DTO.DadosCadastroCurso;
 import com.filiperobot.aluraforumapi.domain.course.DTO.DadosCursoAtualizar;
 import com.filiperobot.aluraforumapi.domain.course.DTO.DadosCursoCompleto;
 import com.filiperobot.aluraforumapi.domain.course.DTO.DadosListagemCurso;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoEventos;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoResumoProjetor;
+import com.filiperobot.aluraforumapi.infra.cache.CarregadorEmLote;
+import com.filiperobot.aluraforumapi.infra.cache.DTO.DadosItemLote;
+import com.filiperobot.aluraforumapi.infra.consultas.OrcamentoConsultas;
 import com.filiperobot.aluraforumapi.infra.documentation.PageableAsQueryParam;
 import com.filiperobot.aluraforumapi.infra.exceptions.DTO.DadosErrosValidacao;
+import com.filiperobot.aluraforumapi.infra.paginacao.Pagina;
+import com.filiperobot.aluraforumapi.infra.shard.ReferenciasReplicadas;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -17,9 +25,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +38,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/cursos")
 @RequiredArgsConstructor
@@ -37,6 +54,17 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class CursoController {
 
     private final CursoRepository cursoRepository;
+    private final TopicoResumoProjetor topicoResumoProjetor;
+    private final TopicoEventos topicoEventos;
+    private final ReferenciasReplicadas referenciasReplicadas;
+    private final Shards shards;
+
+    private CarregadorEmLote<Long, DadosCursoCompleto> cursosEmLote;
+
+    @Autowired
+    void configurarCarga(@Value("${alura.forum.cache.espera:5s}") Duration espera) {
+        cursosEmLote = new CarregadorEmLote<>(this::buscarCursos, 100, Duration.ofMillis(2), espera);
+    }
 
     @PostMapping
     @Transactional
@@ -52,6 +80,7 @@ public class CursoController {
     public ResponseEntity<DadosCursoCompleto> cadastrar(
             @RequestBody @Valid DadosCadastroCurso dadosCurso, UriComponentsBuilder uriBuilder) {
         var curso = cursoRepository.save(new Curso(dadosCurso));
+        referenciasReplicadas.alterada("cursos", curso.getId());
 
         var uri = uriBuilder.path("/cursos/{id}").buildAndExpand(curso.getId()).toUri();
 
@@ -69,10 +98,26 @@ public class CursoController {
             })
     })
     public ResponseEntity<DadosCursoCompleto> curso(@PathVariable Long id) {
-        var curso = cursoRepository.getReferenceById(id);
-        return ResponseEntity.ok(new DadosCursoCompleto(curso));
+        var curso = cursosEmLote.carregar(id)
+                .orElseThrow(() -> new EntityNotFoundException("Curso não encontrado"));
+        return ResponseEntity.ok(curso);
     }
 
+    @GetMapping(params = "ids")
+    @Operation(summary = "Buscar cursos em lote", description = "Procura até 100 cursos pelos IDs informados com uma " +
+            "única consulta. Os resultados seguem a ordem dos IDs, e os não encontrados vêm com encontrado = false.")
+    @Parameters(value = {
+            @Parameter(name = "ids", required = true, description = "Ids dos cursos separados por vírgula")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retorna um item para cada ID informado",
+                    useReturnTypeSchema = true)
+    })
+    public ResponseEntity<List<DadosItemLote<DadosCursoCompleto>>> cursos(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(DadosItemLote.naOrdem(ids, cursosEmLote.carregarTodos(ids)));
+    }
+
+    @OrcamentoConsultas(3)
     @GetMapping
     @Operation(summary = "Listar cursos", description = "Busca todos os cursos do banco de dados")
     @PageableAsQueryParam
@@ -80,10 +125,10 @@ public class CursoController {
             @ApiResponse(responseCode = "200", description = "Retorna uma paginação com todos os cursos encontrados",
                     useReturnTypeSchema = true)
     })
-    public ResponseEntity<Page<DadosListagemCurso>> listaCursos(@ParameterObject Pageable pageable) {
+    public ResponseEntity<Pagina<DadosListagemCurso>> listaCursos(@ParameterObject Pageable pageable) {
         Page<DadosListagemCurso> cursos = cursoRepository.findAll(pageable).map(DadosListagemCurso::new);
 
-        return ResponseEntity.ok(cursos);
+        return ResponseEntity.ok(Pagina.de(cursos));
     }
 
     @PutMapping
@@ -102,6 +147,12 @@ public class CursoController {
 
         curso.atualizar(dadosCursoAtualizacao);
 
+        referenciasReplicadas.alterada("cursos", curso.getId());
+        // com shards, os tópicos do curso ficam na shard dele, onde o resumo muda depois do commit
+        if (topicoResumoProjetor.cursoAlterado(curso.getId()) > 0 || !shards.unica()) {
+            topicoEventos.nomesAlterados();
+        }
+
         return ResponseEntity.ok(new DadosCursoCompleto(curso));
     }
 
@@ -115,7 +166,10 @@ public class CursoController {
             content = {@Content(schema = @Schema())})
     public ResponseEntity<Void> remover(@PathVariable Long id){
         cursoRepository.findById(id).ifPresentOrElse(
-                cursoRepository::delete,
+                curso -> {
+                    cursoRepository.delete(curso);
+                    referenciasReplicadas.alterada("cursos", id);
+                },
                 ()  -> {
                     throw new IllegalArgumentException("Curso não existe, não é possível deleta-lo");
                 }
@@ -123,4 +177,10 @@ public class CursoController {
 
         return ResponseEntity.noContent().build();
     }
+
+    private Map<Long, DadosCursoCompleto> buscarCursos(Set<Long> ids) {
+        var dados = new HashMap<Long, DadosCursoCompleto>();
+        cursoRepository.findAllById(ids).forEach(curso -> dados.put(curso.getId(), new DadosCursoCompleto(curso)));
+        return dados;
+    }
 }
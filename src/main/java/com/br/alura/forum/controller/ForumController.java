@@ -1,11 +1,24 @@
 package com.filiperobot.aluraforumapi.controller;
 
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import br.com.alura.forum.topico.TopicoMensagem;
+import br.com.alura.forum.topico.TopicoMensagemRepository;
 import com.filiperobot.aluraforumapi.domain.course.CursoRepository;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivada;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivadaMensagem;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivoMensagemRepository;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivoRepository;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.DTO.DadosRespostaArquivada;
 import com.filiperobot.aluraforumapi.domain.forum.topico.*;
 import com.filiperobot.aluraforumapi.domain.forum.topico.DTO.*;
 import com.filiperobot.aluraforumapi.domain.user.UsuarioRepository;
+import com.filiperobot.aluraforumapi.infra.cache.CarregadorEmLote;
+import com.filiperobot.aluraforumapi.infra.cache.DTO.DadosItemLote;
+import com.filiperobot.aluraforumapi.infra.consultas.OrcamentoConsultas;
 import com.filiperobot.aluraforumapi.infra.documentation.PageableAsQueryParam;
 import com.filiperobot.aluraforumapi.infra.exceptions.DTO.DadosErrosValidacao;
+import com.filiperobot.aluraforumapi.infra.paginacao.Pagina;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -20,15 +33,24 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/topicos")
 @RequiredArgsConstructor
@@ -39,11 +61,28 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class ForumController {
 
     private final TopicoRepository topicoRepository;
+    private final TopicoResumoRepository topicoResumoRepository;
+    private final TopicoEventos topicoEventos;
+    private final TopicoArquivoRepository topicoArquivoRepository;
+    private final RespostaArquivoRepository respostaArquivoRepository;
+    private final TopicoArquivoMensagemRepository topicoArquivoMensagemRepository;
+    private final RespostaArquivoMensagemRepository respostaArquivoMensagemRepository;
+    private final TopicoExclusaoService topicoExclusaoService;
+    private final TopicoMensagemRepository topicoMensagemRepository;
     private final CursoRepository cursoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+
+    private CarregadorEmLote<Long, DadosDetalheTopico> topicosEmLote;
+
+    // a espera vem da configuração, então o carregador só pode ser criado depois da injeção
+    @Autowired
+    void configurarCarga(@Value("${alura.forum.cache.espera:5s}") Duration espera) {
+        topicosEmLote = new CarregadorEmLote<>(this::buscarTopicos, 100, Duration.ofMillis(2), espera);
+    }
 
     @PostMapping
-    @Transactional
     @Operation(summary = "Cadastrar tópico", description = "Cadastra um tópico no banco de dados.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Retorna os dados do tópico cadastrado", content = {
@@ -66,17 +105,23 @@ public class ForumController {
                 () -> new EntityNotFoundException("Curso não encontrado")
         );
 
+        // a coluna mensagem guarda só o resumo; o texto completo vai comprimido para topicos_mensagens
         var dadosCadastroTopico = new DadosCompletoCadastroTopico(
                 dadosNovoTopico.titulo(),
-                dadosNovoTopico.mensagem(),
+                MensagemCompactada.resumo(dadosNovoTopico.mensagem(), MensagemCompactada.TAMANHO_RESUMO),
                 usuario, curso
         );
 
-        var topico = topicoRepository.save(new Topico(dadosCadastroTopico));
+        // usuário e curso vêm da shard padrão; o tópico é gravado na shard do curso
+        return shards.naShard(shards.doCurso(curso.getId()), () -> transactionTemplate.execute(status -> {
+            var topico = topicoRepository.save(new Topico(dadosCadastroTopico));
+            topicoMensagemRepository.save(new TopicoMensagem(topico.getId(), dadosNovoTopico.mensagem()));
+            topicoEventos.alterado(null, topico.getId());
 
-        var uri = uriBuilder.path("/topicos/{id}").buildAndExpand(topico.getId()).toUri();
+            var uri = uriBuilder.path("/topicos/{id}").buildAndExpand(topico.getId()).toUri();
 
-        return ResponseEntity.created(uri).body(new DadosTopicoCompleto(topico));
+            return ResponseEntity.created(uri).body(new DadosTopicoCompleto(topico, dadosNovoTopico.mensagem()));
+        }));
     }
 
     @GetMapping("{id}")
@@ -85,16 +130,34 @@ public class ForumController {
             @Parameter(name = "id", required = true, description = "Id do tópico a ser encontrado no banco de dados")
     })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Retorna os dados do tópico encontrado", content = {
-                    @Content(mediaType = "application/json", schema = @Schema(implementation = DadosTopicoCompleto.class))
+            @ApiResponse(responseCode = "200", description = "Retorna os dados do tópico encontrado, ou do tópico " +
+                    "arquivado com suas respostas", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(
+                            oneOf = {DadosTopicoCompleto.class, DadosTopicoArquivado.class}))
             })
     })
-    public ResponseEntity<DadosTopicoCompleto> topico(@PathVariable Long id) {
-        var topico = topicoRepository.getReferenceById(id);
+    public ResponseEntity<DadosDetalheTopico> topico(@PathVariable Long id) {
+        var topico = topicosEmLote.carregar(id)
+                .orElseThrow(() -> new EntityNotFoundException("Tópico não encontrado"));
 
-        return ResponseEntity.ok(new DadosTopicoCompleto(topico));
+        return ResponseEntity.ok(topico);
     }
 
+    @GetMapping(params = "ids")
+    @Operation(summary = "Buscar tópicos em lote", description = "Procura até 100 tópicos pelos IDs informados com uma " +
+            "única consulta. Os resultados seguem a ordem dos IDs, e os não encontrados vêm com encontrado = false.")
+    @Parameters(value = {
+            @Parameter(name = "ids", required = true, description = "Ids dos tópicos separados por vírgula")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retorna um item para cada ID informado",
+                    useReturnTypeSchema = true)
+    })
+    public ResponseEntity<List<DadosItemLote<DadosDetalheTopico>>> topicos(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(DadosItemLote.naOrdem(ids, topicosEmLote.carregarTodos(ids)));
+    }
+
+    @OrcamentoConsultas(3)
     @GetMapping
     @Operation(summary = "Listar tópicos", description = "Busca todos os tópicos do banco de dados")
     @PageableAsQueryParam
@@ -102,18 +165,25 @@ public class ForumController {
             @ApiResponse(responseCode = "200", description = "Retorna uma paginação com todos os cursos encontrados",
                     useReturnTypeSchema = true)
     })
-    public ResponseEntity<Page<DadosListagemTopico>> listarTopicos(
+    public ResponseEntity<Pagina<DadosResumoTopico>> listarTopicos(
+            @ParameterObject DadosFiltroTopico filtro,
             @ParameterObject
             @PageableDefault(sort = {"dataCriacao"}, direction = Sort.Direction.ASC)
             Pageable pageable) {
 
-        Page<DadosListagemTopico> listagemTopicos = topicoRepository.findAll(pageable).map(DadosListagemTopico::new);
+        // servida só pelo modelo de leitura, sem joins com usuários, cursos e respostas; com filtro de curso
+        // só a shard dele é consultada
+        var especificacao = TopicoSpecifications.resumoComFiltro(filtro);
+        Page<DadosResumoTopico> listagemTopicos = filtro.curso() != null
+                ? shards.naShard(shards.doCurso(filtro.curso()),
+                        () -> topicoResumoRepository.findAll(especificacao, pageable).map(DadosResumoTopico::new))
+                : shards.paginar(pageable, pagina -> topicoResumoRepository.findAll(especificacao, pagina),
+                        DadosResumoTopico::new);
 
-        return ResponseEntity.ok(listagemTopicos);
+        return ResponseEntity.ok(Pagina.de(listagemTopicos));
     }
 
     @PutMapping
-    @Transactional
     @Operation(summary = "Atualizar tópico", description = "Atualiza os dados de um tópico")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Retorna os dados do tópico atualizado", content = {
@@ -124,29 +194,105 @@ public class ForumController {
             })
     })
     public ResponseEntity<DadosListagemTopico> atualizar(@RequestBody @Valid DadosAtualizarTopico dadosTopicoAtualizacao) {
-        var topico = topicoRepository.getReferenceById(dadosTopicoAtualizacao.id());
+        var id = dadosTopicoAtualizacao.id();
+        if (!shards.conhecida(id)) {
+            throw new EntityNotFoundException("Tópico não encontrado");
+        }
+
+        return shards.naShard(shards.doTopico(id), () -> transactionTemplate.execute(status -> {
+            if (topicoExclusaoService.excluido(id)) {
+                throw new EntityNotFoundException("Tópico não encontrado");
+            }
 
-        topico.atualizar(dadosTopicoAtualizacao);
+            var anterior = topicoEventos.estado(id);
+            var topico = topicoRepository.getReferenceById(id);
 
-        return ResponseEntity.ok(new DadosListagemTopico(topico));
+            topico.atualizar(dadosTopicoAtualizacao.resumida());
+            if (dadosTopicoAtualizacao.mensagem() != null) {
+                topicoMensagemRepository.save(new TopicoMensagem(id, dadosTopicoAtualizacao.mensagem()));
+            }
+            topicoEventos.alterado(anterior, topico.getId());
+
+            return ResponseEntity.ok(new DadosListagemTopico(topico));
+        }));
     }
 
     @DeleteMapping("{id}")
-    @Transactional
-    @Operation(summary = "Remover tópico", description = "Remove do banco de dados o tópico com o ID informado")
+    @Operation(summary = "Remover tópico", description = "Marca o tópico com o ID informado como excluído. " +
+            "O tópico e suas respostas são removidos do banco de dados em segundo plano")
     @Parameters(value = {
             @Parameter(name = "id", required = true, description = "Id do tópico a ser removido")
     })
-    @ApiResponse(responseCode = "204", description = "Caso a exclusão/remoção do tópico seja feita com sucesso",
+    @ApiResponse(responseCode = "202", description = "Caso a exclusão/remoção do tópico seja aceita com sucesso",
             content = {@Content(schema = @Schema())})
     public ResponseEntity<Void> remover(@PathVariable Long id) {
-        topicoRepository.findById(id).ifPresentOrElse(
-                topicoRepository::delete,
-                ()  -> {
-                    throw new IllegalArgumentException("Tópico não existe, não é possível deleta-lo");
-                }
-        );
+        var excluido = shards.conhecida(id)
+                && shards.naShard(shards.doTopico(id), () -> topicoExclusaoService.marcarExcluido(id));
+        if (!excluido) {
+            throw new IllegalArgumentException("Tópico não existe, não é possível deleta-lo");
+        }
+
+        return ResponseEntity.accepted().build();
+    }
+
+    // ids de shards desconhecidas ficam de fora e voltam como não encontrados
+    private Map<Long, DadosDetalheTopico> buscarTopicos(Set<Long> ids) {
+        var dados = new HashMap<Long, DadosDetalheTopico>();
+        ids.stream()
+                .filter(shards::conhecida)
+                .collect(Collectors.groupingBy(shards::doTopico, Collectors.toSet()))
+                .forEach((shard, idsDaShard) -> dados.putAll(shards.naShard(shard, () -> buscarNaShard(idsDaShard))));
+        return dados;
+    }
+
+    // tópicos arquivados saem da tabela principal, então só os ids que faltaram são procurados no arquivo,
+    // que tem entidades próprias para as respostas não serem buscadas na tabela viva
+    private Map<Long, DadosDetalheTopico> buscarNaShard(Set<Long> ids) {
+        var dados = new HashMap<Long, DadosDetalheTopico>();
+        var excluidos = topicoExclusaoService.excluidos(ids);
+        var vivos = topicoRepository.findAllById(ids).stream()
+                .filter(topico -> !excluidos.contains(topico.getId()))
+                .toList();
+        if (!vivos.isEmpty()) {
+            // o texto completo dos tópicos do lote numa consulta por chave
+            var mensagens = topicoMensagemRepository.findAllById(vivos.stream().map(Topico::getId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(TopicoMensagem::getTopicoId, mensagem -> mensagem.getMensagem().texto()));
+            vivos.forEach(topico -> dados.put(topico.getId(),
+                    new DadosTopicoCompleto(topico, mensagens.getOrDefault(topico.getId(), topico.getMensagem()))));
+        }
+
+        var faltantes = ids.stream().filter(id -> !dados.containsKey(id) && !excluidos.contains(id)).toList();
+        if (faltantes.isEmpty()) {
+            return dados;
+        }
+
+        var arquivados = topicoArquivoRepository.findAllByIdIn(faltantes);
+        if (arquivados.isEmpty()) {
+            return dados;
+        }
+
+        var idsArquivados = arquivados.stream().map(TopicoArquivado::getId).toList();
+        var mensagensTopicos = topicoArquivoMensagemRepository.findAllByTopicoIdIn(idsArquivados).stream()
+                .collect(Collectors.toMap(TopicoArquivadoMensagem::getTopicoId, mensagem -> mensagem.getMensagem().texto()));
+
+        var respostasArquivadas = respostaArquivoRepository.findAllByTopicoIdInOrderByDataCriacaoAscIdAsc(idsArquivados);
+        var mensagensRespostas = respostasArquivadas.isEmpty() ? Map.<Long, String>of()
+                : respostaArquivoMensagemRepository
+                .findAllByRespostaIdIn(respostasArquivadas.stream().map(RespostaArquivada::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(RespostaArquivadaMensagem::getRespostaId,
+                        mensagem -> mensagem.getMensagem().texto()));
+
+        var respostas = respostasArquivadas.stream()
+                .collect(Collectors.groupingBy(RespostaArquivada::getTopicoId, Collectors.mapping(
+                        resposta -> new DadosRespostaArquivada(resposta,
+                                mensagensRespostas.getOrDefault(resposta.getId(), resposta.getMensagem())),
+                        Collectors.toList())));
+        arquivados.forEach(topico -> dados.put(topico.getId(), new DadosTopicoArquivado(topico,
+                mensagensTopicos.getOrDefault(topico.getId(), topico.getMensagem()),
+                respostas.getOrDefault(topico.getId(), List.of()))));
 
-        return ResponseEntity.noContent().build();
+        return dados;
     }
 }
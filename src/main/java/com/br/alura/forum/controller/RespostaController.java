@@ -1,12 +1,25 @@
 package com.filiperobot.aluraforumapi.controller;
 
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import br.com.alura.forum.resposta.RespostaMensagem;
+import br.com.alura.forum.resposta.RespostaMensagemRepository;
 import com.filiperobot.aluraforumapi.domain.forum.resposta.DTO.*;
 import com.filiperobot.aluraforumapi.domain.forum.resposta.Resposta;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivada;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivoMensagemRepository;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivoRepository;
 import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaRepository;
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaSpecifications;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoExclusaoService;
 import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoRepository;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoResumoProjetor;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoStatusService;
 import com.filiperobot.aluraforumapi.domain.user.UsuarioRepository;
+import com.filiperobot.aluraforumapi.infra.cache.SingleFlight;
 import com.filiperobot.aluraforumapi.infra.documentation.PageableAsQueryParam;
 import com.filiperobot.aluraforumapi.infra.exceptions.DTO.DadosErrosValidacao;
+import com.filiperobot.aluraforumapi.infra.paginacao.Pagina;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -21,13 +34,17 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/respostas")
 @RequiredArgsConstructor
@@ -38,11 +55,25 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class RespostaController {
 
     private final RespostaRepository respostaRepository;
+    private final RespostaArquivoRepository respostaArquivoRepository;
+    private final RespostaArquivoMensagemRepository respostaArquivoMensagemRepository;
+    private final RespostaMensagemRepository respostaMensagemRepository;
     private final UsuarioRepository usuarioRepository;
     private final TopicoRepository topicoRepository;
+    private final TopicoExclusaoService topicoExclusaoService;
+    private final TopicoStatusService topicoStatusService;
+    private final TopicoResumoProjetor topicoResumoProjetor;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+
+    private SingleFlight<Long, DadosDetalheResposta> respostasEmCarga;
+
+    @Autowired
+    void configurarCarga(@Value("${alura.forum.cache.espera:5s}") Duration espera) {
+        respostasEmCarga = new SingleFlight<>(espera);
+    }
 
     @PostMapping
-    @Transactional
     @Operation(summary = "Cadastrar resposta", description = "Cadastra uma resposta no banco de dados.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Retorna os dados da resposta cadastrado", content = {
@@ -60,17 +91,48 @@ public class RespostaController {
                 () -> new EntityNotFoundException("Autor não encontrado")
         );
 
-        var topico = topicoRepository.findById(dadosResposta.topico()).orElseThrow(
-                () -> new EntityNotFoundException("Topico não encontrado")
-        );
+        if (!shards.conhecida(dadosResposta.topico())) {
+            throw new EntityNotFoundException("Topico não encontrado");
+        }
+
+        // a resposta é gravada na shard do tópico, que também reserva a faixa de ids das respostas
+        return shards.naShard(shards.doTopico(dadosResposta.topico()), () -> transactionTemplate.execute(status -> {
+            // tópicos excluídos continuam na tabela até o expurgo, mas não recebem mais respostas
+            var topico = topicoRepository.findById(dadosResposta.topico())
+                    .filter(encontrado -> !topicoExclusaoService.excluido(encontrado.getId()))
+                    .orElseThrow(() -> new EntityNotFoundException("Topico não encontrado"));
 
-        var dadosCompletoResposta = new DadosCompletoCadastroResposta(dadosResposta.mensagem(), autor, topico);
+            // a coluna mensagem guarda só o resumo; o texto completo vai comprimido para respostas_mensagens
+            var dadosCompletoResposta = new DadosCompletoCadastroResposta(
+                    MensagemCompactada.resumo(dadosResposta.mensagem(), MensagemCompactada.TAMANHO_RESUMO), autor, topico);
 
-        Resposta resposta = respostaRepository.save(new Resposta(dadosCompletoResposta));
+            Resposta resposta = respostaRepository.save(new Resposta(dadosCompletoResposta));
+            respostaMensagemRepository.save(new RespostaMensagem(resposta.getId(), dadosResposta.mensagem()));
 
-        var uri = uriBuilder.path("/respostas/{id}").buildAndExpand(resposta.getId()).toUri();
+            topicoStatusService.registrarResposta(topico.getId(), resposta.getDataCriacao());
 
-        return ResponseEntity.created(uri).body(new DadosResposta(resposta));
+            var uri = uriBuilder.path("/respostas/{id}").buildAndExpand(resposta.getId()).toUri();
+
+            return ResponseEntity.created(uri).body(new DadosResposta(resposta, dadosResposta.mensagem()));
+        }));
+    }
+
+    @PostMapping("/{id}/solucao")
+    @Operation(summary = "Marcar resposta como solução", description = "Marca a resposta com o ID informado como solução " +
+            "do seu tópico, desmarcando a solução anterior e alterando o status do tópico para SOLUCIONADO.")
+    @Parameters(value = {
+            @Parameter(name = "id", required = true, description = "Id da resposta a ser marcada como solução")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Caso a resposta seja marcada como solução com sucesso",
+                    content = {@Content(schema = @Schema())}),
+            @ApiResponse(responseCode = "404", description = "Caso a resposta não seja encontrada",
+                    content = {@Content(schema = @Schema())})
+    })
+    public ResponseEntity<Void> marcarSolucao(@PathVariable Long id) {
+        shards.naShard(shardDaResposta(id), () -> topicoStatusService.marcarSolucao(id));
+
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/{id}")
@@ -79,14 +141,23 @@ public class RespostaController {
             @Parameter(name = "id", required = true, description = "Id da resposta a ser encontrada no banco de dados")
     })
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Retorna os dados da resposta encontrado", content = {
-                    @Content(mediaType = "application/json", schema = @Schema(implementation = DadosResposta.class))
+            @ApiResponse(responseCode = "200", description = "Retorna os dados da resposta encontrada, ou da " +
+                    "resposta arquivada", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(
+                            oneOf = {DadosResposta.class, DadosRespostaArquivada.class}))
             })
     })
-    public ResponseEntity<DadosResposta> buscar(@PathVariable Long id) {
-        var resposta = respostaRepository.getReferenceById(id);
+    public ResponseEntity<DadosDetalheResposta> buscar(@PathVariable Long id) {
+        var resposta = respostasEmCarga.carregar(id, respostaId -> shards.naShard(shardDaResposta(respostaId),
+                () -> respostaRepository.findById(respostaId)
+                        // respostas de tópicos excluídos somem junto com eles, como nas leituras de tópicos
+                        .filter(viva -> !topicoExclusaoService.excluido(viva.getTopico().getId()))
+                        .<DadosDetalheResposta>map(viva -> new DadosResposta(viva, mensagemCompleta(viva)))
+                        .or(() -> respostaArquivoRepository.findById(respostaId)
+                                .map(arquivada -> new DadosRespostaArquivada(arquivada, mensagemCompleta(arquivada))))
+                        .orElseThrow(() -> new EntityNotFoundException("Resposta não encontrada"))));
 
-        return ResponseEntity.ok(new DadosResposta(resposta));
+        return ResponseEntity.ok(resposta);
     }
 
     @GetMapping
@@ -96,14 +167,31 @@ public class RespostaController {
             @ApiResponse(responseCode = "200", description = "Retorna uma paginação com todas as respostas encontrados",
                     useReturnTypeSchema = true)
     })
-    public ResponseEntity<Page<DadosListagemResposta>> listarResposta(@ParameterObject Pageable pageable) {
-        Page<DadosListagemResposta> listagemRespostas = respostaRepository.findAll(pageable).map(DadosListagemResposta::new);
+    public ResponseEntity<Pagina<DadosListagemResposta>> listarResposta(@ParameterObject Pageable pageable) {
+        Page<DadosListagemResposta> listagemRespostas = shards.paginar(pageable,
+                pagina -> respostaRepository.findAll(
+                        RespostaSpecifications.foraDosTopicos(topicoExclusaoService.aguardandoExpurgo()), pagina),
+                DadosListagemResposta::new);
+
+        return ResponseEntity.ok(Pagina.de(listagemRespostas));
+    }
+
+    @GetMapping(params = "arquivadas=true")
+    @Operation(summary = "Listar respostas arquivadas", description = "Busca as respostas que foram movidas para o " +
+            "arquivo junto com seus tópicos e por isso não aparecem mais na listagem principal")
+    @PageableAsQueryParam
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retorna uma paginação com as respostas arquivadas",
+                    useReturnTypeSchema = true)
+    })
+    public ResponseEntity<Pagina<DadosRespostaArquivada>> listarRespostasArquivadas(@ParameterObject Pageable pageable) {
+        Page<DadosRespostaArquivada> listagemRespostas = shards.paginar(pageable,
+                pagina -> respostaArquivoRepository.findAll(pagina), DadosRespostaArquivada::new);
 
-        return ResponseEntity.ok(listagemRespostas);
+        return ResponseEntity.ok(Pagina.de(listagemRespostas));
     }
 
     @PutMapping
-    @Transactional
     @Operation(summary = "Atualizar resposta", description = "Atualiza os dados de uma resposta")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Retorna os dados da resposta atualizada", content = {
@@ -114,15 +202,19 @@ public class RespostaController {
             })
     })
     public ResponseEntity<DadosListagemResposta> atualizar(@RequestBody DadosAtualizarResposta respostaAtualizada) {
-        var resposta = respostaRepository.getReferenceById(respostaAtualizada.id());
+        return shards.naShard(shardDaResposta(respostaAtualizada.id()), () -> transactionTemplate.execute(status -> {
+            var resposta = respostaRepository.getReferenceById(respostaAtualizada.id());
 
-        resposta.atualizar(respostaAtualizada);
+            resposta.atualizar(respostaAtualizada.resumida());
+            if (respostaAtualizada.mensagem() != null) {
+                respostaMensagemRepository.save(new RespostaMensagem(resposta.getId(), respostaAtualizada.mensagem()));
+            }
 
-        return ResponseEntity.ok(new DadosListagemResposta(resposta));
+            return ResponseEntity.ok(new DadosListagemResposta(resposta));
+        }));
     }
 
     @DeleteMapping("/{id}")
-    @Transactional
     @Operation(summary = "Remover resposta", description = "Remove do banco de dados a resposta com o ID informado")
     @Parameters(value = {
             @Parameter(name = "id", required = true, description = "Id da resposta a ser removida")
@@ -130,14 +222,38 @@ public class RespostaController {
     @ApiResponse(responseCode = "204", description = "Caso a exclusão/remoção da resposta seja feita com sucesso",
             content = {@Content(schema = @Schema())})
     public ResponseEntity<Void> deletar(@PathVariable Long id) {
-        respostaRepository.findById(id).ifPresentOrElse(
-                respostaRepository::delete,
-                () -> {
-                    throw new IllegalArgumentException("Resposta não existe, não é possível deleta-la");
-                }
-        );
+        shards.naShard(shardDaResposta(id), () -> transactionTemplate.executeWithoutResult(status ->
+                respostaRepository.findById(id).ifPresentOrElse(
+                        resposta -> {
+                            respostaRepository.delete(resposta);
+                            respostaMensagemRepository.deleteById(id);
+                            topicoResumoProjetor.topicoAlterado(resposta.getTopico().getId());
+                        },
+                        () -> {
+                            throw new IllegalArgumentException("Resposta não existe, não é possível deleta-la");
+                        }
+                )));
 
         return ResponseEntity.noContent().build();
     }
+
+    private String mensagemCompleta(Resposta resposta) {
+        return respostaMensagemRepository.findById(resposta.getId())
+                .map(mensagem -> mensagem.getMensagem().texto())
+                .orElse(resposta.getMensagem());
+    }
+
+    private String mensagemCompleta(RespostaArquivada resposta) {
+        return respostaArquivoMensagemRepository.findById(resposta.getId())
+                .map(mensagem -> mensagem.getMensagem().texto())
+                .orElse(resposta.getMensagem());
+    }
+
+    private String shardDaResposta(Long id) {
+        if (!shards.conhecida(id)) {
+            throw new EntityNotFoundException("Resposta não encontrada");
+        }
+        return shards.daResposta(id);
+    }
 }
 
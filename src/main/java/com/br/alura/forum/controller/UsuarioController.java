@@ -1,11 +1,17 @@
 package com.filiperobot.aluraforumapi.controller;
 
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoEventos;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoResumoProjetor;
 import com.filiperobot.aluraforumapi.domain.user.*;
 import com.filiperobot.aluraforumapi.domain.user.DTO.DadosCadastroUsuario;
 import com.filiperobot.aluraforumapi.domain.user.DTO.DadosUsuarioAtualizar;
 import com.filiperobot.aluraforumapi.domain.user.DTO.DadosUsuarioCompleto;
 import com.filiperobot.aluraforumapi.domain.user.DTO.DadosListagemUsuario;
+import com.filiperobot.aluraforumapi.infra.cache.CarregadorEmLote;
+import com.filiperobot.aluraforumapi.infra.cache.DTO.DadosItemLote;
 import com.filiperobot.aluraforumapi.infra.exceptions.DTO.DadosErrosValidacao;
+import com.filiperobot.aluraforumapi.infra.shard.ReferenciasReplicadas;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -16,15 +22,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/usuarios")
@@ -34,6 +47,17 @@ public class UsuarioController {
 
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TopicoResumoProjetor topicoResumoProjetor;
+    private final TopicoEventos topicoEventos;
+    private final ReferenciasReplicadas referenciasReplicadas;
+    private final Shards shards;
+
+    private CarregadorEmLote<Long, DadosUsuarioCompleto> usuariosEmLote;
+
+    @Autowired
+    void configurarCarga(@Value("${alura.forum.cache.espera:5s}") Duration espera) {
+        usuariosEmLote = new CarregadorEmLote<>(this::buscarUsuarios, 100, Duration.ofMillis(2), espera);
+    }
 
     @PostMapping
     @Transactional
@@ -55,6 +79,7 @@ public class UsuarioController {
         var novosDados = new DadosCadastroUsuario(dadosUsuario, senhaCriptografada);
 
         var usuario = usuarioRepository.save(new Usuario(novosDados));
+        referenciasReplicadas.alterada("usuarios", usuario.getId());
 
         var uri = uriBuilder.path("/usuario/{id}").buildAndExpand(usuario.getId()).toUri();
 
@@ -75,8 +100,26 @@ public class UsuarioController {
                     content = {@Content(schema = @Schema())})
     })
     public ResponseEntity<DadosUsuarioCompleto> usuario(@PathVariable Long id) {
-        var usuario = usuarioRepository.getReferenceById(id);
-        return ResponseEntity.ok(new DadosUsuarioCompleto(usuario));
+        var usuario = usuariosEmLote.carregar(id)
+                .orElseThrow(() -> new EntityNotFoundException("Usuário não encontrado"));
+        return ResponseEntity.ok(usuario);
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Buscar usuários em lote", description = "Procura até 100 usuários pelos IDs informados com uma " +
+            "única consulta. Os resultados seguem a ordem dos IDs, e os não encontrados vêm com encontrado = false.",
+            security = @SecurityRequirement(name = "TokenJWT"))
+    @Parameters(value = {
+            @Parameter(name = "ids", required = true, description = "Ids dos usuários separados por vírgula")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Retorna um item para cada ID informado",
+                    useReturnTypeSchema = true),
+            @ApiResponse(responseCode = "403", description = "Bloqueia a requisição caso o token não seja valido ou não foi enviado",
+                    content = {@Content(schema = @Schema())})
+    })
+    public ResponseEntity<List<DadosItemLote<DadosUsuarioCompleto>>> usuarios(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(DadosItemLote.naOrdem(ids, usuariosEmLote.carregarTodos(ids)));
     }
 
     @GetMapping
@@ -123,6 +166,12 @@ public class UsuarioController {
             usuario.atualizar(dadosUsuarioAtualizacao);
         }
 
+        referenciasReplicadas.alterada("usuarios", usuario.getId());
+        // com shards, os tópicos do autor podem estar só nas outras, onde o resumo muda depois do commit
+        if (topicoResumoProjetor.autorAlterado(usuario.getId()) > 0 || !shards.unica()) {
+            topicoEventos.nomesAlterados();
+        }
+
         return ResponseEntity.ok(new DadosUsuarioCompleto(usuario));
     }
 
@@ -142,7 +191,10 @@ public class UsuarioController {
     })
     public ResponseEntity<Void> removerUsuario(@PathVariable Long id) {
         usuarioRepository.findById(id).ifPresentOrElse(
-                usuarioRepository::delete,
+                usuario -> {
+                    usuarioRepository.delete(usuario);
+                    referenciasReplicadas.alterada("usuarios", id);
+                },
                 () -> {
                     throw new IllegalArgumentException("Usuário não existe, não é possível deleta-lo");
                 }
@@ -150,4 +202,10 @@ public class UsuarioController {
 
         return ResponseEntity.noContent().build();
     }
+
+    private Map<Long, DadosUsuarioCompleto> buscarUsuarios(Set<Long> ids) {
+        var dados = new HashMap<Long, DadosUsuarioCompleto>();
+        usuarioRepository.findAllById(ids).forEach(usuario -> dados.put(usuario.getId(), new DadosUsuarioCompleto(usuario)));
+        return dados;
+    }
 }
@@ -0,0 +1,14 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta.DTO;
+
+import br.com.alura.forum.mensagem.MensagemCompactada;
+
+public record DadosAtualizarResposta(
+        Long id,
+        String mensagem) {
+
+    // para a entidade, que guarda só o resumo na coluna mensagem
+    public DadosAtualizarResposta resumida() {
+        return mensagem == null ? this
+                : new DadosAtualizarResposta(id, MensagemCompactada.resumo(mensagem, MensagemCompactada.TAMANHO_RESUMO));
+    }
+}
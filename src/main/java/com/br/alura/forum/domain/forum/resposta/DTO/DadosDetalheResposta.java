@@ -0,0 +1,7 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta.DTO;
+
+// resposta da busca por id, que encontra a resposta viva ou a que já foi para o arquivo
+public sealed interface DadosDetalheResposta permits DadosResposta, DadosRespostaArquivada {
+
+    Long id();
+}
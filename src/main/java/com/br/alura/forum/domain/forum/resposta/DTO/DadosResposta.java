@@ -0,0 +1,20 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta.DTO;
+
+import com.filiperobot.aluraforumapi.domain.forum.resposta.Resposta;
+
+import java.time.LocalDateTime;
+
+public record DadosResposta(
+        Long id,
+        String mensagem,
+        Long topico,
+        LocalDateTime dataCriacao,
+        String autor,
+        Boolean solucao) implements DadosDetalheResposta {
+
+    // a coluna mensagem da resposta tem só o resumo; o texto completo vem de respostas_mensagens
+    public DadosResposta(Resposta resposta, String mensagem) {
+        this(resposta.getId(), mensagem, resposta.getTopico().getId(), resposta.getDataCriacao(),
+                resposta.getAutor().getNome(), resposta.getSolucao());
+    }
+}
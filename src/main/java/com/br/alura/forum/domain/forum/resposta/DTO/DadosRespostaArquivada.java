@@ -0,0 +1,25 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta.DTO;
+
+import com.filiperobot.aluraforumapi.domain.forum.resposta.RespostaArquivada;
+
+import java.time.LocalDateTime;
+
+public record DadosRespostaArquivada(
+        Long id,
+        String mensagem,
+        Long topico,
+        LocalDateTime dataCriacao,
+        String autor,
+        Boolean solucao,
+        LocalDateTime arquivadoEm) implements DadosDetalheResposta {
+
+    // listagem do arquivo, só com o resumo
+    public DadosRespostaArquivada(RespostaArquivada resposta) {
+        this(resposta, resposta.getMensagem());
+    }
+
+    public DadosRespostaArquivada(RespostaArquivada resposta, String mensagem) {
+        this(resposta.getId(), mensagem, resposta.getTopicoId(), resposta.getDataCriacao(),
+                resposta.getAutorNome(), resposta.getSolucao(), resposta.getArquivadoEm());
+    }
+}
@@ -0,0 +1,38 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Table(name = "respostas_arquivo")
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class RespostaArquivada {
+
+    @Id
+    private Long id;
+
+    private String mensagem;
+
+    private Long topicoId;
+
+    private LocalDateTime dataCriacao;
+
+    @Column(name = "usuario_id")
+    private Long autorId;
+
+    @Formula("(select u.nome from usuarios u where u.id = usuario_id)")
+    private String autorNome;
+
+    private Boolean solucao;
+
+    private LocalDateTime arquivadoEm;
+}
@@ -0,0 +1,24 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta;
+
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+// texto completo das respostas arquivadas, fora da tabela particionada para a listagem do arquivo não carregá-lo
+@Entity
+@Immutable
+@Table(name = "respostas_arquivo_mensagens")
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode(of = "respostaId")
+public class RespostaArquivadaMensagem {
+
+    @Id
+    private Long respostaId;
+
+    @Embedded
+    private MensagemCompactada mensagem;
+}
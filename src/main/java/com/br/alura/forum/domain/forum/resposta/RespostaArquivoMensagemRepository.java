@@ -0,0 +1,14 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta;
+
+import org.springframework.data.repository.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface RespostaArquivoMensagemRepository extends Repository<RespostaArquivadaMensagem, Long> {
+
+    Optional<RespostaArquivadaMensagem> findById(Long id);
+
+    List<RespostaArquivadaMensagem> findAllByRespostaIdIn(Collection<Long> respostaIds);
+}
@@ -0,0 +1,18 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface RespostaArquivoRepository extends Repository<RespostaArquivada, Long> {
+
+    Optional<RespostaArquivada> findById(Long id);
+
+    Page<RespostaArquivada> findAll(Pageable pageable);
+
+    List<RespostaArquivada> findAllByTopicoIdInOrderByDataCriacaoAscIdAsc(Collection<Long> topicoIds);
+}
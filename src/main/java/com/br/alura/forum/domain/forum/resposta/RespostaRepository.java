@@ -0,0 +1,7 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+public interface RespostaRepository extends JpaRepository<Resposta, Long>, JpaSpecificationExecutor<Resposta> {
+}
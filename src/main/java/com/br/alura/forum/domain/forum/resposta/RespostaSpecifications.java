@@ -0,0 +1,18 @@
+package com.filiperobot.aluraforumapi.domain.forum.resposta;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+public final class RespostaSpecifications {
+
+    private RespostaSpecifications() {
+    }
+
+    // o Topico da resposta não mapeia excluido_em, então os tópicos excluídos chegam como ids
+    public static Specification<Resposta> foraDosTopicos(Collection<Long> topicosExcluidos) {
+        return (root, query, cb) -> topicosExcluidos.isEmpty()
+                ? cb.conjunction()
+                : cb.not(root.get("topico").get("id").in(topicosExcluidos));
+    }
+}
@@ -0,0 +1,17 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico.DTO;
+
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import jakarta.validation.constraints.NotNull;
+
+public record DadosAtualizarTopico(
+        @NotNull
+        Long id,
+        String titulo,
+        String mensagem) {
+
+    // para a entidade, que guarda só o resumo na coluna mensagem
+    public DadosAtualizarTopico resumida() {
+        return mensagem == null ? this
+                : new DadosAtualizarTopico(id, titulo, MensagemCompactada.resumo(mensagem, MensagemCompactada.TAMANHO_RESUMO));
+    }
+}
@@ -0,0 +1,7 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico.DTO;
+
+// resposta da busca por id, que encontra o tópico vivo ou o que já foi para o arquivo
+public sealed interface DadosDetalheTopico permits DadosTopicoCompleto, DadosTopicoArquivado {
+
+    Long id();
+}
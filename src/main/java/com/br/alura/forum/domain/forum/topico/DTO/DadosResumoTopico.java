@@ -0,0 +1,22 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico.DTO;
+
+import com.filiperobot.aluraforumapi.domain.forum.topico.StatusTopico;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoResumo;
+
+import java.time.LocalDateTime;
+
+public record DadosResumoTopico(
+        Long id,
+        String titulo,
+        LocalDateTime dataCriacao,
+        StatusTopico status,
+        String autor,
+        String curso,
+        Integer totalRespostas,
+        LocalDateTime ultimaAtividade) {
+
+    public DadosResumoTopico(TopicoResumo resumo) {
+        this(resumo.getTopicoId(), resumo.getTitulo(), resumo.getDataCriacao(), resumo.getStatusTopico(),
+                resumo.getAutorNome(), resumo.getCursoNome(), resumo.getTotalRespostas(), resumo.getUltimaAtividade());
+    }
+}
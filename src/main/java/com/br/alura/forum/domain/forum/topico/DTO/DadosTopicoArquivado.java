@@ -0,0 +1,28 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico.DTO;
+
+import com.filiperobot.aluraforumapi.domain.forum.resposta.DTO.DadosRespostaArquivada;
+import com.filiperobot.aluraforumapi.domain.forum.topico.StatusTopico;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoArquivado;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record DadosTopicoArquivado(
+        Long id,
+        String titulo,
+        String mensagem,
+        LocalDateTime dataCriacao,
+        StatusTopico status,
+        String autor,
+        String curso,
+        Long visualizacoes,
+        LocalDateTime arquivadoEm,
+        List<DadosRespostaArquivada> respostas) implements DadosDetalheTopico {
+
+    // a coluna mensagem do arquivo tem só o resumo; o texto completo vem de topicos_arquivo_mensagens
+    public DadosTopicoArquivado(TopicoArquivado topico, String mensagem, List<DadosRespostaArquivada> respostas) {
+        this(topico.getId(), topico.getTitulo(), mensagem, topico.getDataCriacao(), topico.getStatusTopico(),
+                topico.getAutorNome(), topico.getCursoNome(), topico.getVisualizacoes(), topico.getArquivadoEm(),
+                respostas);
+    }
+}
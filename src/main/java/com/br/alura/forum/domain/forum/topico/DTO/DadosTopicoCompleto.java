@@ -0,0 +1,22 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico.DTO;
+
+import com.filiperobot.aluraforumapi.domain.forum.topico.StatusTopico;
+import com.filiperobot.aluraforumapi.domain.forum.topico.Topico;
+
+import java.time.LocalDateTime;
+
+public record DadosTopicoCompleto(
+        Long id,
+        String titulo,
+        String mensagem,
+        LocalDateTime dataCriacao,
+        StatusTopico status,
+        String autor,
+        String curso) implements DadosDetalheTopico {
+
+    // a coluna mensagem do tópico tem só o resumo; o texto completo vem de topicos_mensagens
+    public DadosTopicoCompleto(Topico topico, String mensagem) {
+        this(topico.getId(), topico.getTitulo(), mensagem, topico.getDataCriacao(), topico.getStatusTopico(),
+                topico.getAutor().getNome(), topico.getCurso().getNome());
+    }
+}
@@ -0,0 +1,47 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// somente leitura; fica separado de Topico para que nada do arquivo seja carregado ou escrito pelas tabelas vivas
+@Entity
+@Immutable
+@Table(name = "topicos_arquivo")
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class TopicoArquivado {
+
+    @Id
+    private Long id;
+
+    private String titulo;
+
+    private String mensagem;
+
+    private LocalDateTime dataCriacao;
+
+    @Enumerated(EnumType.STRING)
+    private StatusTopico statusTopico;
+
+    @Column(name = "usuario_id")
+    private Long autorId;
+
+    @Formula("(select u.nome from usuarios u where u.id = usuario_id)")
+    private String autorNome;
+
+    private Long cursoId;
+
+    @Formula("(select c.nome from cursos c where c.id = curso_id)")
+    private String cursoNome;
+
+    private Long visualizacoes;
+
+    private LocalDateTime arquivadoEm;
+}
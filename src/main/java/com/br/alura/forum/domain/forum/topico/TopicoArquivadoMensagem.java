@@ -0,0 +1,24 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+// texto completo dos tópicos arquivados, fora da tabela particionada para a listagem do arquivo não carregá-lo
+@Entity
+@Immutable
+@Table(name = "topicos_arquivo_mensagens")
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode(of = "topicoId")
+public class TopicoArquivadoMensagem {
+
+    @Id
+    private Long topicoId;
+
+    @Embedded
+    private MensagemCompactada mensagem;
+}
@@ -0,0 +1,11 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import org.springframework.data.repository.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TopicoArquivoMensagemRepository extends Repository<TopicoArquivadoMensagem, Long> {
+
+    List<TopicoArquivadoMensagem> findAllByTopicoIdIn(Collection<Long> topicoIds);
+}
@@ -0,0 +1,14 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import org.springframework.data.repository.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TopicoArquivoRepository extends Repository<TopicoArquivado, Long> {
+
+    Optional<TopicoArquivado> findById(Long id);
+
+    List<TopicoArquivado> findAllByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,60 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import br.com.alura.forum.topico.TopicoAlteradoEvent;
+import br.com.alura.forum.topico.TopicoIndexado;
+import br.com.alura.forum.topico.TopicoNomesAlteradosEvent;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// as alterações destes endpoints avisam a projeção, as facetas e os fragmentos em cache pelo mesmo evento do
+// outro conjunto de endpoints. O estado é lido por consulta nativa, que faz o flush da sessão antes
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class TopicoEventos {
+
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TopicoIndexado estado(Long id) {
+        return entityManager.createNativeQuery("""
+                        select id, status_topico, curso_id, usuario_id from topicos
+                        where id = :id and excluido_em is null""")
+                .setParameter("id", id)
+                .getResultStream()
+                .map(Object[].class::cast)
+                .map(linha -> new TopicoIndexado(
+                        ((Number) linha[0]).longValue(),
+                        br.com.alura.forum.topico.StatusTopico.valueOf((String) linha[1]),
+                        ((Number) linha[2]).longValue(),
+                        ((Number) linha[3]).longValue()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    // anterior nulo para tópicos criados
+    public void alterado(TopicoIndexado anterior, Long id) {
+        var atual = estado(id);
+        if (anterior != null || atual != null) {
+            eventPublisher.publishEvent(new TopicoAlteradoEvent(anterior, atual));
+        }
+    }
+
+    // para atualizações em massa, que não leem o tópico antes: só o status muda
+    public void statusAlterado(Long id, br.com.alura.forum.topico.StatusTopico statusAnterior) {
+        var atual = estado(id);
+        if (atual != null) {
+            eventPublisher.publishEvent(new TopicoAlteradoEvent(
+                    new TopicoIndexado(id, statusAnterior, atual.cursoId(), atual.autorId()), atual));
+        }
+    }
+
+    // o nome do autor e do curso fazem parte dos fragmentos de todos os tópicos deles
+    public void nomesAlterados() {
+        eventPublisher.publishEvent(new TopicoNomesAlteradosEvent());
+    }
+}
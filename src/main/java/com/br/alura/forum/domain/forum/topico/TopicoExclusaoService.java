@@ -0,0 +1,82 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import br.com.alura.forum.topico.TopicoAlteradoEvent;
+import br.com.alura.forum.topico.TopicoIndexado;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// único caminho de exclusão lógica para os dois conjuntos de endpoints de tópicos. O Topico deste pacote não
+// mapeia excluido_em, então as leituras por ele consultam a coluna aqui antes de devolver ou aceitar respostas
+@Service
+@RequiredArgsConstructor
+public class TopicoExclusaoService {
+
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // o evento atualiza a projeção, as facetas e os fragmentos em cache na mesma transação
+    @Transactional
+    public boolean marcarExcluido(Long id) {
+        var topico = entityManager.createNativeQuery("""
+                        select id, status_topico, curso_id, usuario_id from topicos
+                        where id = :id and excluido_em is null
+                        for update""")
+                .setParameter("id", id)
+                .getResultStream()
+                .map(Object[].class::cast)
+                .findFirst();
+
+        if (topico.isEmpty()) {
+            return false;
+        }
+
+        entityManager.createNativeQuery("update topicos set excluido_em = now() where id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+
+        var linha = topico.get();
+        eventPublisher.publishEvent(TopicoAlteradoEvent.removido(new TopicoIndexado(
+                ((Number) linha[0]).longValue(),
+                br.com.alura.forum.topico.StatusTopico.valueOf((String) linha[1]),
+                ((Number) linha[2]).longValue(),
+                ((Number) linha[3]).longValue())));
+
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public boolean excluido(Long id) {
+        return !excluidos(Set.of(id)).isEmpty();
+    }
+
+    @Transactional(readOnly = true)
+    public Set<Long> excluidos(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+
+        var excluidos = new HashSet<Long>();
+        entityManager.createNativeQuery("select id from topicos where id in (:ids) and excluido_em is not null")
+                .setParameter("ids", ids)
+                .getResultStream()
+                .forEach(id -> excluidos.add(((Number) id).longValue()));
+        return excluidos;
+    }
+
+    // os excluídos da shard atual que o expurgo ainda não removeu; ficam poucos, porque ele roda a cada 30s
+    @Transactional(readOnly = true)
+    public Set<Long> aguardandoExpurgo() {
+        var excluidos = new HashSet<Long>();
+        entityManager.createNativeQuery("select id from topicos where excluido_em is not null")
+                .getResultStream()
+                .forEach(id -> excluidos.add(((Number) id).longValue()));
+        return excluidos;
+    }
+}
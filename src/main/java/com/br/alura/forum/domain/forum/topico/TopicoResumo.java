@@ -0,0 +1,41 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Table(name = "topico_resumo")
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode(of = "topicoId")
+public class TopicoResumo {
+
+    @Id
+    private Long topicoId;
+
+    private String titulo;
+
+    private LocalDateTime dataCriacao;
+
+    @Enumerated(EnumType.STRING)
+    private StatusTopico statusTopico;
+
+    private Long cursoId;
+
+    private String cursoNome;
+
+    @Column(name = "usuario_id")
+    private Long autorId;
+
+    private String autorNome;
+
+    private Integer totalRespostas;
+
+    private LocalDateTime ultimaAtividade;
+}
@@ -0,0 +1,131 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import br.com.alura.forum.topico.TopicoAlteradoEvent;
+import com.filiperobot.aluraforumapi.infra.shard.ReferenciasReplicadas;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// consultas nativas pelo EntityManager fazem o flush da sessão antes, então a projeção enxerga as
+// alterações ainda não gravadas da mesma transação
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class TopicoResumoProjetor {
+
+    private static final String RENOMEAR_AUTOR = """
+            update topico_resumo r join usuarios u on u.id = r.usuario_id
+            set r.autor_nome = u.nome
+            where r.usuario_id = :id and r.autor_nome <> u.nome""";
+
+    private static final String RENOMEAR_CURSO = """
+            update topico_resumo r join cursos c on c.id = r.curso_id
+            set r.curso_nome = c.nome
+            where r.curso_id = :id and r.curso_nome <> c.nome""";
+
+    private final EntityManager entityManager;
+    private final ReferenciasReplicadas referenciasReplicadas;
+
+    // as alterações de usuários e cursos são feitas na primeira shard; nas outras, o resumo é atualizado junto
+    // com a cópia da linha
+    @PostConstruct
+    void renomearNasOutrasShards() {
+        referenciasReplicadas.aoReplicar("usuarios", RENOMEAR_AUTOR);
+        referenciasReplicadas.aoReplicar("cursos", RENOMEAR_CURSO);
+    }
+
+    public void topicoAlterado(Long topicoId) {
+        projetar(List.of(topicoId));
+    }
+
+    public void topicoRemovido(Long topicoId) {
+        entityManager.createNativeQuery("delete from topico_resumo where topico_id = :id")
+                .setParameter("id", topicoId)
+                .executeUpdate();
+    }
+
+    public void respostaCriada(Long topicoId, LocalDateTime dataCriacao) {
+        entityManager.createNativeQuery("""
+                        update topico_resumo r join topicos t on t.id = r.topico_id
+                        set r.total_respostas = r.total_respostas + 1,
+                            r.ultima_atividade = greatest(r.ultima_atividade, :dataCriacao),
+                            r.status_topico = t.status_topico
+                        where r.topico_id = :topicoId""")
+                .setParameter("topicoId", topicoId)
+                .setParameter("dataCriacao", dataCriacao)
+                .executeUpdate();
+    }
+
+    // devolve quantos resumos mudaram de nome: zero quando o nome não mudou ou o autor não tem tópicos
+    public int autorAlterado(Long usuarioId) {
+        return entityManager.createNativeQuery(RENOMEAR_AUTOR)
+                .setParameter("id", usuarioId)
+                .executeUpdate();
+    }
+
+    public int cursoAlterado(Long cursoId) {
+        return entityManager.createNativeQuery(RENOMEAR_CURSO)
+                .setParameter("id", cursoId)
+                .executeUpdate();
+    }
+
+    // recalcula as linhas a partir das tabelas de origem, então pode ser repetido sem acumular erro
+    public void projetar(List<Long> topicoIds) {
+        if (topicoIds.isEmpty()) {
+            return;
+        }
+
+        entityManager.createNativeQuery("""
+                        insert into topico_resumo(topico_id, titulo, data_criacao, status_topico, curso_id, curso_nome,
+                                                  usuario_id, autor_nome, total_respostas, ultima_atividade)
+                        select t.id, t.titulo, t.data_criacao, t.status_topico, c.id, c.nome, u.id, u.nome,
+                               (select count(*) from respostas r where r.topico_id = t.id),
+                               greatest(t.data_criacao, coalesce(
+                                       (select max(r.data_criacao) from respostas r where r.topico_id = t.id),
+                                       t.data_criacao))
+                        from topicos t
+                        join cursos c on c.id = t.curso_id
+                        join usuarios u on u.id = t.usuario_id
+                        where t.id in (:ids) and t.excluido_em is null
+                        on duplicate key update titulo = values(titulo), status_topico = values(status_topico),
+                            curso_id = values(curso_id), curso_nome = values(curso_nome),
+                            usuario_id = values(usuario_id), autor_nome = values(autor_nome),
+                            total_respostas = values(total_respostas), ultima_atividade = values(ultima_atividade)""")
+                .setParameter("ids", topicoIds)
+                .executeUpdate();
+
+        entityManager.createNativeQuery("""
+                        delete from topico_resumo
+                        where topico_id in (:ids)
+                        and not exists (select 1 from topicos t where t.id = topico_id and t.excluido_em is null)""")
+                .setParameter("ids", topicoIds)
+                .executeUpdate();
+    }
+
+    public void removerOrfaos(long aPartirDe, long ate) {
+        entityManager.createNativeQuery("""
+                        delete from topico_resumo
+                        where topico_id > :aPartirDe and topico_id <= :ate
+                        and not exists (select 1 from topicos t where t.id = topico_id and t.excluido_em is null)""")
+                .setParameter("aPartirDe", aPartirDe)
+                .setParameter("ate", ate)
+                .executeUpdate();
+    }
+
+    // alterações feitas pelo outro conjunto de endpoints de tópicos chegam como evento, dentro da transação
+    @EventListener
+    public void aoAlterarTopico(TopicoAlteradoEvent event) {
+        if (event.atual() == null) {
+            topicoRemovido(event.id());
+        } else {
+            topicoAlterado(event.id());
+        }
+    }
+}
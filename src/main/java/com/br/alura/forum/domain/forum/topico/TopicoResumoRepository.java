@@ -0,0 +1,7 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.Repository;
+
+public interface TopicoResumoRepository extends Repository<TopicoResumo, Long>, JpaSpecificationExecutor<TopicoResumo> {
+}
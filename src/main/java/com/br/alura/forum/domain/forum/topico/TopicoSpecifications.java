@@ -0,0 +1,38 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import com.filiperobot.aluraforumapi.domain.forum.topico.DTO.DadosFiltroTopico;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+
+public final class TopicoSpecifications {
+
+    private TopicoSpecifications() {
+    }
+
+    // a listagem é servida pelo modelo de leitura, onde curso e autor já são colunas e tópicos excluídos não entram
+    public static Specification<TopicoResumo> resumoComFiltro(DadosFiltroTopico filtro) {
+        return (root, query, cb) -> {
+            var predicados = new ArrayList<Predicate>();
+
+            if (filtro.curso() != null) {
+                predicados.add(cb.equal(root.get("cursoId"), filtro.curso()));
+            }
+            if (filtro.statusTopico() != null) {
+                predicados.add(cb.equal(root.get("statusTopico"), filtro.statusTopico()));
+            }
+            if (filtro.autor() != null) {
+                predicados.add(cb.equal(root.get("autorId"), filtro.autor()));
+            }
+            if (filtro.desde() != null) {
+                predicados.add(cb.greaterThanOrEqualTo(root.get("dataCriacao"), filtro.desde()));
+            }
+            if (filtro.ate() != null) {
+                predicados.add(cb.lessThan(root.get("dataCriacao"), filtro.ate()));
+            }
+
+            return cb.and(predicados.toArray(Predicate[]::new));
+        };
+    }
+}
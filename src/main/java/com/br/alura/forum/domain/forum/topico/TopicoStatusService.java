@@ -0,0 +1,78 @@
+package com.filiperobot.aluraforumapi.domain.forum.topico;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class TopicoStatusService {
+
+    private final EntityManager entityManager;
+    private final TopicoResumoProjetor topicoResumoProjetor;
+    private final TopicoEventos topicoEventos;
+
+    @Transactional
+    public void marcarSolucao(Long respostaId) {
+        var topicoId = entityManager.createQuery(
+                        "select r.topico.id from Resposta r where r.id = :respostaId", Long.class)
+                .setParameter("respostaId", respostaId)
+                .getResultStream()
+                .findFirst()
+                .orElseThrow(() -> new EntityNotFoundException("Resposta não encontrada"));
+
+        var anterior = topicoEventos.estado(topicoId);
+
+        int topicosAtualizados = entityManager.createQuery("""
+                        update Topico t set t.statusTopico = :solucionado
+                        where t.id = :topicoId and t.statusTopico in :statusAbertos""")
+                .setParameter("solucionado", StatusTopico.SOLUCIONADO)
+                .setParameter("topicoId", topicoId)
+                .setParameter("statusAbertos", List.of(
+                        StatusTopico.NAO_RESPONDIDO, StatusTopico.NAO_SOLUCIONADO, StatusTopico.SOLUCIONADO))
+                .executeUpdate();
+
+        if (topicosAtualizados == 0) {
+            throw new IllegalArgumentException("Tópico fechado, não é possível marcar uma solução");
+        }
+
+        entityManager.createQuery("""
+                        update Resposta r set r.solucao = false
+                        where r.topico.id = :topicoId and r.solucao = true and r.id <> :respostaId""")
+                .setParameter("topicoId", topicoId)
+                .setParameter("respostaId", respostaId)
+                .executeUpdate();
+
+        entityManager.createQuery("""
+                        update Resposta r set r.solucao = true
+                        where r.id = :respostaId and r.solucao = false""")
+                .setParameter("respostaId", respostaId)
+                .executeUpdate();
+
+        topicoEventos.alterado(anterior, topicoId);
+    }
+
+    // a data vem da resposta gravada, para a última atividade do resumo bater com a ordenação das respostas
+    @Transactional
+    public void registrarResposta(Long topicoId, LocalDateTime dataCriacao) {
+        int topicosAtualizados = entityManager.createQuery("""
+                        update Topico t set t.statusTopico = :naoSolucionado
+                        where t.id = :topicoId and t.statusTopico = :naoRespondido""")
+                .setParameter("naoSolucionado", StatusTopico.NAO_SOLUCIONADO)
+                .setParameter("naoRespondido", StatusTopico.NAO_RESPONDIDO)
+                .setParameter("topicoId", topicoId)
+                .executeUpdate();
+
+        // a primeira resposta muda o status: o evento reprojeta o resumo inteiro, já contando a resposta nova
+        if (topicosAtualizados > 0) {
+            topicoEventos.statusAlterado(topicoId, br.com.alura.forum.topico.StatusTopico.NAO_RESPONDIDO);
+        } else {
+            topicoResumoProjetor.respostaCriada(topicoId, dataCriacao);
+        }
+    }
+}
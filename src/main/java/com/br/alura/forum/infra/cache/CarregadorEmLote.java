@@ -0,0 +1,147 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+import com.filiperobot.aluraforumapi.infra.consultas.ContagemConsultas;
+import com.filiperobot.aluraforumapi.infra.datasource.LeituraPropria;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// buscas por id que chegam juntas viram uma única consulta "in": a primeira requisição de um lote espera a
+// janela, as seguintes entram no mesmo lote e quem completa o tamanho máximo executa na hora. Sem outra busca em
+// andamento não há com quem agrupar, então a primeira executa sem esperar
+public class CarregadorEmLote<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> consulta;
+    private final int maximoPorLote;
+    private final Duration janela;
+    private final Duration espera;
+
+    private final Object trava = new Object();
+    // o lote roda com o roteamento de quem o executa, então quem precisa ler do primário fica num lote à parte
+    private final Map<Boolean, Lote<K, V>> atuais = new HashMap<>();
+    private int emAndamento;
+
+    public CarregadorEmLote(Function<Set<K>, Map<K, V>> consulta, int maximoPorLote, Duration janela, Duration espera) {
+        this.consulta = consulta;
+        this.maximoPorLote = maximoPorLote;
+        this.janela = janela;
+        this.espera = espera;
+    }
+
+    public Optional<V> carregar(K chave) {
+        boolean primario = LeituraPropria.primarioObrigatorio();
+        Lote<K, V> lote;
+        CompletableFuture<Optional<V>> futuro;
+        boolean lider = false;
+        boolean cheio = false;
+        boolean sozinho;
+
+        synchronized (trava) {
+            emAndamento++;
+            sozinho = emAndamento == 1;
+            lote = atuais.get(primario);
+            if (lote == null) {
+                lote = new Lote<>();
+                atuais.put(primario, lote);
+                lider = true;
+            }
+            futuro = lote.chaves.computeIfAbsent(chave, k -> new CompletableFuture<>());
+            lote.contagens.add(ContagemConsultas.atual());
+            if (lote.chaves.size() >= maximoPorLote) {
+                atuais.remove(primario);
+                cheio = true;
+            }
+        }
+
+        try {
+            if (cheio) {
+                executar(lote);
+            } else if (lider) {
+                if (!sozinho) {
+                    aguardarJanela();
+                }
+                boolean executarAgora;
+                synchronized (trava) {
+                    executarAgora = atuais.get(primario) == lote;
+                    if (executarAgora) {
+                        atuais.remove(primario);
+                    }
+                }
+                if (executarAgora) {
+                    executar(lote);
+                }
+            }
+
+            return aguardar(chave, futuro);
+        } finally {
+            synchronized (trava) {
+                emAndamento--;
+            }
+        }
+    }
+
+    // consulta direta, sem janela: quem pede vários ids de uma vez já forma o lote
+    public Map<K, V> carregarTodos(Collection<K> chaves) {
+        var distintas = new LinkedHashSet<>(chaves);
+        if (distintas.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Os ids não podem ser vazios");
+        }
+        if (distintas.isEmpty()) {
+            return Map.of();
+        }
+        if (distintas.size() > maximoPorLote) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No máximo " + maximoPorLote + " ids por requisição");
+        }
+        return consulta.apply(distintas);
+    }
+
+    private void executar(Lote<K, V> lote) {
+        try {
+            // cada requisição do lote é cobrada pelas consultas dele, e não só a que executou
+            var encontrados = ContagemConsultas.emNomeDe(lote.contagens,
+                    () -> consulta.apply(Collections.unmodifiableSet(lote.chaves.keySet())));
+            lote.chaves.forEach((chave, futuro) -> futuro.complete(Optional.ofNullable(encontrados.get(chave))));
+        } catch (RuntimeException | Error exception) {
+            lote.chaves.values().forEach(futuro -> futuro.completeExceptionally(exception));
+        }
+    }
+
+    private void aguardarJanela() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(janela.toNanos());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Optional<V> aguardar(K chave, CompletableFuture<Optional<V>> futuro) {
+        try {
+            return futuro.get(espera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            throw new SingleFlightTimeoutException("Tempo esgotado aguardando a carga de " + chave, exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (exception.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SingleFlightTimeoutException("Carga de " + chave + " interrompida", exception);
+        }
+    }
+
+    private static final class Lote<K, V> {
+        private final Map<K, CompletableFuture<Optional<V>>> chaves = new LinkedHashMap<>();
+        private final List<ContagemConsultas> contagens = new ArrayList<>();
+    }
+}
@@ -0,0 +1,17 @@
+package com.filiperobot.aluraforumapi.infra.cache.DTO;
+
+import java.util.List;
+import java.util.Map;
+
+public record DadosItemLote<T>(Long id, boolean encontrado, T dados) {
+
+    // um item por id pedido, na ordem da requisição; ids ausentes vêm com encontrado = false
+    public static <T> List<DadosItemLote<T>> naOrdem(List<Long> ids, Map<Long, T> encontrados) {
+        return ids.stream()
+                .map(id -> {
+                    var dados = encontrados.get(id);
+                    return new DadosItemLote<>(id, dados != null, dados);
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,137 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// cada chave cai numa faixa de versões; invalidar uma chave avança a versão da faixa, o que também descarta as
+// vizinhas, mas mantém a memória de versões fixa independente de quantas chaves já passaram pelo cache
+public class FragmentoCache<K> {
+
+    private static final int FAIXAS = 4096;
+
+    private final ConcurrentHashMap<K, Entrada> entradas = new ConcurrentHashMap<>();
+    private final AtomicLongArray versoes = new AtomicLongArray(FAIXAS);
+    private final AtomicLong sequencia = new AtomicLong();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    private final int maximoEntradas;
+    private final long atrasoLeituraNanos;
+
+    private final ArrayDeque<Invalidacao> recentes = new ArrayDeque<>();
+    private long marcaSemAtraso;
+
+    public FragmentoCache(int maximoEntradas) {
+        this(maximoEntradas, Duration.ZERO);
+    }
+
+    // atrasoLeitura é quanto a origem das leituras pode estar atrás das escritas, como uma réplica
+    public FragmentoCache(int maximoEntradas, Duration atrasoLeitura) {
+        this.maximoEntradas = maximoEntradas;
+        this.atrasoLeituraNanos = atrasoLeitura.toNanos();
+    }
+
+    // deve ser lida antes de consultar o banco: um fragmento só é guardado se nenhuma invalidação da sua faixa
+    // aconteceu depois dessa marca, senão poderia guardar dados lidos antes da escrita com a versão nova.
+    // Com atraso de leitura, as invalidações mais novas que ele também contam como posteriores à leitura
+    public long marca() {
+        if (atrasoLeituraNanos == 0) {
+            return sequencia.get();
+        }
+        synchronized (recentes) {
+            descartarRecentes(System.nanoTime());
+            return marcaSemAtraso;
+        }
+    }
+
+    public <V> FragmentoJson obter(K chave, V valor, long marca, Function<V, byte[]> serializar) {
+        int faixa = faixa(chave);
+        long versao = versoes.get(faixa);
+        var entrada = entradas.get(chave);
+
+        if (entrada != null && entrada.versao() == versao) {
+            acertos.increment();
+            return entrada.fragmento();
+        }
+
+        falhas.increment();
+        var fragmento = new FragmentoJson(serializar.apply(valor));
+
+        if (versao <= marca) {
+            if (entradas.size() >= maximoEntradas) {
+                descartarAlgumas();
+            }
+            entradas.put(chave, new Entrada(versao, fragmento));
+        }
+
+        return fragmento;
+    }
+
+    public void invalidar(K chave) {
+        versoes.accumulateAndGet(faixa(chave), proximaVersao(), Math::max);
+        entradas.remove(chave);
+    }
+
+    public void invalidarTudo() {
+        long versao = proximaVersao();
+        for (int i = 0; i < FAIXAS; i++) {
+            versoes.set(i, versao);
+        }
+        entradas.clear();
+    }
+
+    public int tamanho() {
+        return entradas.size();
+    }
+
+    public long acertos() {
+        return acertos.sum();
+    }
+
+    public long falhas() {
+        return falhas.sum();
+    }
+
+    private long proximaVersao() {
+        if (atrasoLeituraNanos == 0) {
+            return sequencia.incrementAndGet();
+        }
+        synchronized (recentes) {
+            long agora = System.nanoTime();
+            descartarRecentes(agora);
+            long versao = sequencia.incrementAndGet();
+            recentes.addLast(new Invalidacao(agora, versao));
+            return versao;
+        }
+    }
+
+    // as invalidações que já passaram do atraso saem da fila e avançam a marca
+    private void descartarRecentes(long agora) {
+        while (!recentes.isEmpty() && agora - recentes.peekFirst().instanteNanos() >= atrasoLeituraNanos) {
+            marcaSemAtraso = recentes.pollFirst().versao();
+        }
+    }
+
+    // sem ordem de acesso para manter a leitura sem trava; cerca de um décimo das entradas sai a cada vez
+    private void descartarAlgumas() {
+        entradas.keySet().removeIf(chave -> ThreadLocalRandom.current().nextInt(10) == 0);
+    }
+
+    private static int faixa(Object chave) {
+        int hash = chave.hashCode();
+        return (hash ^ (hash >>> 16)) & (FAIXAS - 1);
+    }
+
+    private record Entrada(long versao, FragmentoJson fragmento) {
+    }
+
+    private record Invalidacao(long instanteNanos, long versao) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+
+    private final Duration espera;
+
+    public SingleFlight(Duration espera) {
+        this.espera = espera;
+    }
+
+    public V carregar(K chave, Function<K, V> carregador) {
+        var nova = new CompletableFuture<V>();
+        var existente = emAndamento.putIfAbsent(chave, nova);
+
+        if (existente != null) {
+            return aguardar(chave, existente);
+        }
+
+        try {
+            var valor = carregador.apply(chave);
+            nova.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error exception) {
+            nova.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    public int emAndamento() {
+        return emAndamento.size();
+    }
+
+    private V aguardar(K chave, CompletableFuture<V> futuro) {
+        try {
+            return futuro.get(espera.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            throw new SingleFlightTimeoutException("Tempo esgotado aguardando a carga de " + chave, exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (exception.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SingleFlightTimeoutException("Carga de " + chave + " interrompida", exception);
+        }
+    }
+}
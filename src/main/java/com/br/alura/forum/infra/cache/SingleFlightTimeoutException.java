@@ -0,0 +1,8 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+public class SingleFlightTimeoutException extends RuntimeException {
+
+    public SingleFlightTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,81 @@
+package com.filiperobot.aluraforumapi.infra.concorrencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    enum ClasseEndpoint {
+        AUTENTICACAO, LEITURA, ESCRITA
+    }
+
+    private final Map<ClasseEndpoint, LimiteAdaptativo> limites = new EnumMap<>(ClasseEndpoint.class);
+    private final Map<ClasseEndpoint, Counter> rejeicoes = new EnumMap<>(ClasseEndpoint.class);
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${alura.forum.api.concorrencia.limite-inicial:20}") int limiteInicial,
+                                  @Value("${alura.forum.api.concorrencia.limite-minimo:2}") int limiteMinimo,
+                                  @Value("${alura.forum.api.concorrencia.limite-maximo:200}") int limiteMaximo) {
+        for (var classe : ClasseEndpoint.values()) {
+            var limite = new LimiteAdaptativo(limiteInicial, limiteMinimo, limiteMaximo);
+            var tag = classe.name().toLowerCase();
+
+            limites.put(classe, limite);
+            rejeicoes.put(classe, Counter.builder("forum.concorrencia.rejeicoes").tag("classe", tag).register(meterRegistry));
+            Gauge.builder("forum.concorrencia.limite", limite, LimiteAdaptativo::limite).tag("classe", tag).register(meterRegistry);
+            Gauge.builder("forum.concorrencia.em.voo", limite, LimiteAdaptativo::emVoo).tag("classe", tag).register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var classe = classificar(request);
+        var limite = limites.get(classe);
+
+        if (!limite.adquirir()) {
+            rejeicoes.get(classe).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            filterChain.doFilter(request, response);
+            sucesso = response.getStatus() < 500;
+        } finally {
+            limite.liberar(System.nanoTime() - inicio, sucesso);
+        }
+    }
+
+    private static ClasseEndpoint classificar(HttpServletRequest request) {
+        if (request.getServletPath().startsWith("/login")) {
+            return ClasseEndpoint.AUTENTICACAO;
+        }
+        if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+            return ClasseEndpoint.LEITURA;
+        }
+        return ClasseEndpoint.ESCRITA;
+    }
+}
@@ -0,0 +1,125 @@
+package com.filiperobot.aluraforumapi.infra.concorrencia;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// o limite é ajustado no máximo uma vez por janela, pelo p90 das latências dela: uma rajada de amostras lentas
+// da mesma janela reduz o limite uma vez só, e não uma vez por requisição
+public class LimiteAdaptativo {
+
+    private static final double FATOR_REDUCAO = 0.9;
+    private static final double TOLERANCIA_LATENCIA = 2.0;
+    private static final double DECAIMENTO_LATENCIA_MINIMA = 0.05;
+    private static final double PERCENTIL = 0.9;
+    private static final int AMOSTRAS_MINIMAS = 10;
+    private static final int AMOSTRAS_MAXIMAS = 256;
+    private static final long JANELA_MINIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+
+    private final AtomicInteger emVoo = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile double limite;
+    private double latenciaMinimaNanos = Double.MAX_VALUE;
+
+    private final long[] amostras = new long[AMOSTRAS_MAXIMAS];
+    private int quantidadeAmostras;
+    private int falhas;
+    private int maiorEmVoo;
+    private long inicioJanelaNanos;
+
+    public LimiteAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo) {
+        this.limite = limiteInicial;
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    public boolean adquirir() {
+        while (true) {
+            int atual = emVoo.get();
+            if (atual >= (int) limite) {
+                return false;
+            }
+            if (emVoo.compareAndSet(atual, atual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void liberar(long latenciaNanos, boolean sucesso) {
+        liberar(latenciaNanos, sucesso, System.nanoTime());
+    }
+
+    void liberar(long latenciaNanos, boolean sucesso, long agoraNanos) {
+        int emVooNaSaida = emVoo.getAndDecrement();
+
+        lock.lock();
+        try {
+            // a janela começa na primeira amostra, para um período ocioso não encerrar a próxima com uma amostra só
+            if (quantidadeAmostras + falhas == 0) {
+                inicioJanelaNanos = agoraNanos;
+            }
+            if (sucesso) {
+                amostras[quantidadeAmostras++] = latenciaNanos;
+            } else {
+                falhas++;
+            }
+            maiorEmVoo = Math.max(maiorEmVoo, emVooNaSaida);
+
+            if (janelaEncerrada(agoraNanos)) {
+                ajustar();
+                quantidadeAmostras = 0;
+                falhas = 0;
+                maiorEmVoo = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limite() {
+        return (int) limite;
+    }
+
+    public int emVoo() {
+        return emVoo.get();
+    }
+
+    // a janela dura pelo menos duas vezes a menor latência vista, para conter ao menos uma ida e volta completa
+    private boolean janelaEncerrada(long agoraNanos) {
+        if (quantidadeAmostras == AMOSTRAS_MAXIMAS) {
+            return true;
+        }
+        if (quantidadeAmostras + falhas < AMOSTRAS_MINIMAS) {
+            return false;
+        }
+        double duracao = Math.max(JANELA_MINIMA_NANOS, latenciaMinimaNanos == Double.MAX_VALUE ? 0 : latenciaMinimaNanos * 2);
+        return agoraNanos - inicioJanelaNanos >= duracao;
+    }
+
+    private void ajustar() {
+        if (quantidadeAmostras > 0) {
+            var janela = Arrays.copyOf(amostras, quantidadeAmostras);
+            Arrays.sort(janela);
+            long menor = janela[0];
+            long percentil = janela[(int) Math.ceil(PERCENTIL * janela.length) - 1];
+
+            // a latência mínima acompanha a menor da janela e sobe devagar, para não esquecer a base na primeira rajada
+            latenciaMinimaNanos = menor < latenciaMinimaNanos ? menor
+                    : latenciaMinimaNanos + (menor - latenciaMinimaNanos) * DECAIMENTO_LATENCIA_MINIMA;
+
+            if (falhas == 0 && percentil <= latenciaMinimaNanos * TOLERANCIA_LATENCIA) {
+                if (maiorEmVoo * 2 >= limite) {
+                    limite = Math.min(limiteMaximo, limite + 1);
+                }
+                return;
+            }
+        }
+
+        limite = Math.max(limiteMinimo, limite * FATOR_REDUCAO);
+    }
+}
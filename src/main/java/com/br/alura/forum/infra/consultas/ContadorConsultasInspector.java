@@ -0,0 +1,16 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// o Hibernate passa cada SQL preparado por aqui; consultas via JdbcTemplate não são vistas
+public class ContadorConsultasInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        var contagem = ContagemConsultas.atual();
+        if (contagem != null) {
+            contagem.registrar(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,105 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// estado da requisição atual; as consultas podem rodar em threads auxiliares (shards), então os contadores são atômicos
+public class ContagemConsultas {
+
+    private static final ThreadLocal<ContagemConsultas> ATUAL = new ThreadLocal<>();
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    private final Map<String, AtomicInteger> porSql = new ConcurrentHashMap<>();
+
+    public static ContagemConsultas atual() {
+        return ATUAL.get();
+    }
+
+    static ContagemConsultas iniciar() {
+        var contagem = new ContagemConsultas();
+        ATUAL.set(contagem);
+        return contagem;
+    }
+
+    static void encerrar() {
+        ATUAL.remove();
+    }
+
+    // para tarefas enviadas a outros executores contarem na requisição que as disparou
+    public static <T> Supplier<T> comContextoAtual(Supplier<T> tarefa) {
+        var contagem = ATUAL.get();
+        if (contagem == null) {
+            return tarefa;
+        }
+        return () -> {
+            var anterior = ATUAL.get();
+            ATUAL.set(contagem);
+            try {
+                return tarefa.get();
+            } finally {
+                if (anterior == null) {
+                    ATUAL.remove();
+                } else {
+                    ATUAL.set(anterior);
+                }
+            }
+        };
+    }
+
+    // consultas feitas por uma thread em nome de várias requisições (um lote) contam em cada uma delas, e não só
+    // na requisição da thread que as executou
+    public static <T> T emNomeDe(Collection<ContagemConsultas> contagens, Supplier<T> tarefa) {
+        var anterior = ATUAL.get();
+        var compartilhada = new ContagemConsultas();
+        ATUAL.set(compartilhada);
+        try {
+            return tarefa.get();
+        } finally {
+            if (anterior == null) {
+                ATUAL.remove();
+            } else {
+                ATUAL.set(anterior);
+            }
+            var distintas = new IdentityHashMap<ContagemConsultas, Boolean>();
+            contagens.forEach(contagem -> {
+                if (contagem != null && distintas.put(contagem, true) == null) {
+                    contagem.somar(compartilhada);
+                }
+            });
+        }
+    }
+
+    private void somar(ContagemConsultas outra) {
+        total.addAndGet(outra.total());
+        nanos.addAndGet(outra.nanos());
+        outra.porSql.forEach((sql, quantidade) ->
+                porSql.computeIfAbsent(sql, s -> new AtomicInteger()).addAndGet(quantidade.get()));
+    }
+
+    void registrar(String sql) {
+        total.incrementAndGet();
+        porSql.computeIfAbsent(sql, s -> new AtomicInteger()).incrementAndGet();
+    }
+
+    void registrarTempo(long nanosConsulta) {
+        nanos.addAndGet(nanosConsulta);
+    }
+
+    public int total() {
+        return total.get();
+    }
+
+    public long nanos() {
+        return nanos.get();
+    }
+
+    Map<String, AtomicInteger> porSql() {
+        return porSql;
+    }
+}
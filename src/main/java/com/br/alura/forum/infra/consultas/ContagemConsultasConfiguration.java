@@ -0,0 +1,18 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ContagemConsultasConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer contagemConsultasCustomizer() {
+        return propriedades -> {
+            propriedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorConsultasInspector());
+            propriedades.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, TempoConsultasListener.class.getName());
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// fica antes da segurança para contar também a busca do usuário do token
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 20)
+public class ContagemConsultasFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean exporCabecalhos;
+    private final boolean falharAcimaDoOrcamento;
+    private final int repeticoesSuspeitas;
+
+    public ContagemConsultasFilter(MeterRegistry meterRegistry, Environment environment,
+                                   @Value("${alura.forum.consultas.orcamento.falhar:false}") boolean falharAcimaDoOrcamento,
+                                   @Value("${alura.forum.consultas.repeticoes-suspeitas:3}") int repeticoesSuspeitas) {
+        this.meterRegistry = meterRegistry;
+        this.exporCabecalhos = !environment.acceptsProfiles(Profiles.of("prod"));
+        this.falharAcimaDoOrcamento = falharAcimaDoOrcamento;
+        this.repeticoesSuspeitas = repeticoesSuspeitas;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // os cabeçalhos só podem ser escritos depois de contar, então fora de produção o corpo fica em buffer
+        var resposta = exporCabecalhos ? new ContentCachingResponseWrapper(response) : response;
+        var contagem = ContagemConsultas.iniciar();
+
+        try {
+            filterChain.doFilter(request, resposta);
+        } catch (IOException | ServletException | RuntimeException | Error exception) {
+            ContagemConsultas.encerrar();
+            liberarCorpo(resposta, contagem);
+            throw exception;
+        }
+        ContagemConsultas.encerrar();
+
+        var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var rota = uri != null ? uri.toString() : "desconhecida";
+        registrarMetricas(request.getMethod(), rota, contagem);
+        procurarRepeticoes(request.getMethod(), rota, contagem);
+        // antes de liberar o corpo: acima do orçamento a requisição falha sem a resposta já ter sido enviada
+        verificarOrcamento(request, rota, contagem, !resposta.isCommitted());
+        liberarCorpo(resposta, contagem);
+    }
+
+    private void liberarCorpo(HttpServletResponse resposta, ContagemConsultas contagem) throws IOException {
+        if (resposta instanceof ContentCachingResponseWrapper wrapper) {
+            wrapper.setHeader("X-Consultas", String.valueOf(contagem.total()));
+            wrapper.setHeader("X-Consultas-Tempo-Ms", String.valueOf(TimeUnit.NANOSECONDS.toMillis(contagem.nanos())));
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void registrarMetricas(String metodo, String rota, ContagemConsultas contagem) {
+        DistributionSummary.builder("forum.http.consultas")
+                .tag("metodo", metodo)
+                .tag("uri", rota)
+                .register(meterRegistry)
+                .record(contagem.total());
+        Timer.builder("forum.http.consultas.tempo")
+                .tag("metodo", metodo)
+                .tag("uri", rota)
+                .register(meterRegistry)
+                .record(contagem.nanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // o mesmo SQL parametrizado várias vezes na mesma requisição costuma ser um relacionamento carregado um a um
+    private void procurarRepeticoes(String metodo, String rota, ContagemConsultas contagem) {
+        contagem.porSql().forEach((sql, vezes) -> {
+            if (vezes.get() >= repeticoesSuspeitas) {
+                meterRegistry.counter("forum.http.consultas.repetidas", "metodo", metodo, "uri", rota).increment();
+                log.warn("Possível N+1 em {} {}: {} execuções de {}", metodo, rota, vezes.get(), sql);
+            }
+        });
+    }
+
+    // sem o buffer (produção) a resposta pode já ter saído, e aí o excesso só é registrado
+    private void verificarOrcamento(HttpServletRequest request, String rota, ContagemConsultas contagem,
+                                    boolean podeFalhar) {
+        if (!(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler)) {
+            return;
+        }
+        var orcamento = handler.getMethodAnnotation(OrcamentoConsultas.class);
+        if (orcamento == null || contagem.total() <= orcamento.value()) {
+            return;
+        }
+
+        var mensagem = "%s %s executou %d consultas, acima do orçamento de %d"
+                .formatted(request.getMethod(), rota, contagem.total(), orcamento.value());
+        meterRegistry.counter("forum.http.consultas.orcamento.excedido", "metodo", request.getMethod(), "uri", rota)
+                .increment();
+        if (falharAcimaDoOrcamento && podeFalhar) {
+            throw new IllegalStateException(mensagem);
+        }
+        log.warn(mensagem);
+    }
+}
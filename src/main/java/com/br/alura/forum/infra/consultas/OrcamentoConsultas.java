@@ -0,0 +1,14 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// número máximo de comandos SQL do Hibernate que o endpoint pode executar por requisição
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrcamentoConsultas {
+
+    int value();
+}
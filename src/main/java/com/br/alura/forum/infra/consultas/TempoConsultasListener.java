@@ -0,0 +1,39 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import com.filiperobot.aluraforumapi.infra.tempos.TemposRequisicao;
+import org.hibernate.BaseSessionEventListener;
+
+// o Hibernate cria uma instância por sessão, que é usada por uma thread de cada vez
+public class TempoConsultasListener extends BaseSessionEventListener {
+
+    private long inicio;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        registrar();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        registrar();
+    }
+
+    private void registrar() {
+        long nanos = System.nanoTime() - inicio;
+        var contagem = ContagemConsultas.atual();
+        if (contagem != null) {
+            contagem.registrarTempo(nanos);
+        }
+        TemposRequisicao.atual().registrarConsulta(nanos);
+    }
+}
@@ -0,0 +1,61 @@
+package com.filiperobot.aluraforumapi.infra.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+public class LeituraPropria {
+
+    private static final ThreadLocal<Boolean> PRIMARIO_OBRIGATORIO = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, Long> ultimasEscritas = new ConcurrentHashMap<>();
+
+    private final long janelaNanos;
+
+    public LeituraPropria(Duration janela) {
+        this.janelaNanos = janela.toNanos();
+    }
+
+    public void registrarEscrita(String usuario) {
+        ultimasEscritas.put(usuario, System.nanoTime());
+    }
+
+    public boolean escreveuRecentemente(String usuario) {
+        var escrita = ultimasEscritas.get(usuario);
+        return escrita != null && System.nanoTime() - escrita < janelaNanos;
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.datasource.replica.limpeza-ms:60000}")
+    public void removerExpiradas() {
+        var agora = System.nanoTime();
+        ultimasEscritas.values().removeIf(escrita -> agora - escrita >= janelaNanos);
+    }
+
+    public static boolean primarioObrigatorio() {
+        return Boolean.TRUE.equals(PRIMARIO_OBRIGATORIO.get());
+    }
+
+    static void definir(boolean primarioObrigatorio) {
+        if (primarioObrigatorio) {
+            PRIMARIO_OBRIGATORIO.set(true);
+        } else {
+            PRIMARIO_OBRIGATORIO.remove();
+        }
+    }
+
+    // leva a decisão da thread da requisição para consultas executadas em outras threads
+    public static <T> Supplier<T> comContextoAtual(Supplier<T> consulta) {
+        var primarioObrigatorio = primarioObrigatorio();
+        return () -> {
+            var anterior = primarioObrigatorio();
+            definir(primarioObrigatorio);
+            try {
+                return consulta.get();
+            } finally {
+                definir(anterior);
+            }
+        };
+    }
+}
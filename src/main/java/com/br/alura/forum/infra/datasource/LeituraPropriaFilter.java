@@ -0,0 +1,53 @@
+package com.filiperobot.aluraforumapi.infra.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+public class LeituraPropriaFilter extends OncePerRequestFilter {
+
+    private static final Set<String> METODOS_LEITURA = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final LeituraPropria leituraPropria;
+
+    public LeituraPropriaFilter(LeituraPropria leituraPropria) {
+        this.leituraPropria = leituraPropria;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var usuario = usuarioAutenticado();
+        var escrita = !METODOS_LEITURA.contains(request.getMethod());
+
+        // a escrita é registrada antes de executar, assim a próxima leitura do usuário não corre contra a resposta
+        if (usuario != null && escrita) {
+            leituraPropria.registrarEscrita(usuario);
+        }
+
+        LeituraPropria.definir(usuario != null && leituraPropria.escreveuRecentemente(usuario));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            LeituraPropria.definir(false);
+        }
+    }
+
+    private static String usuarioAutenticado() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
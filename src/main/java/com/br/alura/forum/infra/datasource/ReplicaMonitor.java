@@ -0,0 +1,72 @@
+package com.filiperobot.aluraforumapi.infra.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Slf4j
+public class ReplicaMonitor {
+
+    private final JdbcTemplate replica;
+    private final Duration atrasoMaximo;
+    private final boolean monitorarAtraso;
+
+    private volatile boolean disponivel = true;
+    private volatile long atrasoSegundos;
+
+    public ReplicaMonitor(DataSource replica, Duration atrasoMaximo, boolean monitorarAtraso, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout(2);
+        this.atrasoMaximo = atrasoMaximo;
+        this.monitorarAtraso = monitorarAtraso;
+
+        Gauge.builder("forum.datasource.replica.atraso", this, monitor -> monitor.atrasoSegundos)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("forum.datasource.replica.disponivel", this, monitor -> monitor.disponivel ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean disponivel() {
+        return disponivel;
+    }
+
+    public Duration atrasoMaximo() {
+        return atrasoMaximo;
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.datasource.replica.verificacao-ms:1000}")
+    public void verificar() {
+        boolean anterior = disponivel;
+        try {
+            atrasoSegundos = monitorarAtraso ? consultarAtraso() : verificarConexao();
+        } catch (RuntimeException exception) {
+            atrasoSegundos = -1;
+        }
+        disponivel = atrasoSegundos >= 0 && atrasoSegundos <= atrasoMaximo.toSeconds();
+
+        if (anterior != disponivel) {
+            log.warn("Réplica {} (atraso de {}s)", disponivel ? "voltou a receber leituras" : "fora do roteamento",
+                    atrasoSegundos);
+        }
+    }
+
+    private long verificarConexao() {
+        replica.execute("select 1");
+        return 0;
+    }
+
+    // sem replicação configurada o MySQL não devolve linhas, o que é tratado como réplica indisponível
+    private long consultarAtraso() {
+        var atraso = replica.query("show replica status", rs -> rs.next() ? rs.getObject("Seconds_Behind_Source") : null);
+        if (atraso == null) {
+            return -1;
+        }
+        return ((Number) atraso).longValue();
+    }
+}
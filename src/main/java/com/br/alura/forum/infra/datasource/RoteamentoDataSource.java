@@ -0,0 +1,66 @@
+package com.filiperobot.aluraforumapi.infra.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+    public enum Destino {
+        PRIMARIO, REPLICA
+    }
+
+    enum Motivo {
+        ESCRITA, LEITURA_PROPRIA, REPLICA_INDISPONIVEL, LEITURA
+    }
+
+    private final ReplicaMonitor replicaMonitor;
+    private final Map<Motivo, Counter> roteamentos = new EnumMap<>(Motivo.class);
+
+    public RoteamentoDataSource(DataSource primario, DataSource replica, ReplicaMonitor replicaMonitor,
+                                MeterRegistry meterRegistry) {
+        this.replicaMonitor = replicaMonitor;
+
+        setTargetDataSources(Map.of(Destino.PRIMARIO, primario, Destino.REPLICA, replica));
+        setDefaultTargetDataSource(primario);
+        afterPropertiesSet();
+
+        for (var motivo : Motivo.values()) {
+            roteamentos.put(motivo, Counter.builder("forum.datasource.roteamento")
+                    .tag("destino", destino(motivo).name().toLowerCase())
+                    .tag("motivo", motivo.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    // só funciona atrás de um LazyConnectionDataSourceProxy: a conexão precisa ser obtida depois que a
+    // transação já foi marcada como somente leitura
+    @Override
+    protected Object determineCurrentLookupKey() {
+        var motivo = motivo();
+        roteamentos.get(motivo).increment();
+        return destino(motivo);
+    }
+
+    private Motivo motivo() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Motivo.ESCRITA;
+        }
+        if (LeituraPropria.primarioObrigatorio()) {
+            return Motivo.LEITURA_PROPRIA;
+        }
+        if (!replicaMonitor.disponivel()) {
+            return Motivo.REPLICA_INDISPONIVEL;
+        }
+        return Motivo.LEITURA;
+    }
+
+    private static Destino destino(Motivo motivo) {
+        return motivo == Motivo.LEITURA ? Destino.REPLICA : Destino.PRIMARIO;
+    }
+}
@@ -0,0 +1,89 @@
+package com.filiperobot.aluraforumapi.infra.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+// réplica e shards definem o dataSource principal, então só um dos dois pode estar ativo
+@ConditionalOnExpression("'${alura.forum.datasource.replica.url:}' != '' and !${alura.forum.shards.habilitado:false}")
+public class RoteamentoDataSourceConfiguration {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("alura.forum.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primarioDataSource(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+        return pool(dataSourceProperties, "primario", meterRegistry);
+    }
+
+    @Bean
+    @ConfigurationProperties("alura.forum.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Qualifier("replicaDataSourceProperties") DataSourceProperties replicaProperties,
+                                              MeterRegistry meterRegistry) {
+        var replica = pool(replicaProperties, "replica", meterRegistry);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReplicaMonitor replicaMonitor(@Qualifier("replicaDataSource") DataSource replica, MeterRegistry meterRegistry,
+                                         @Value("${alura.forum.datasource.replica.atraso-maximo:2s}") Duration atrasoMaximo,
+                                         @Value("${alura.forum.datasource.replica.monitorar-atraso:true}") boolean monitorarAtraso) {
+        return new ReplicaMonitor(replica, atrasoMaximo, monitorarAtraso, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primarioDataSource") DataSource primario,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaMonitor replicaMonitor, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new RoteamentoDataSource(primario, replica, replicaMonitor, meterRegistry));
+    }
+
+    @Bean
+    public LeituraPropria leituraPropria(
+            @Value("${alura.forum.datasource.replica.janela-leitura-propria:5s}") Duration janela) {
+        return new LeituraPropria(janela);
+    }
+
+    // depois da cadeia de segurança, para que o usuário autenticado já esteja disponível
+    @Bean
+    public FilterRegistrationBean<LeituraPropriaFilter> leituraPropriaFilter(LeituraPropria leituraPropria) {
+        var registro = new FilterRegistrationBean<>(new LeituraPropriaFilter(leituraPropria));
+        registro.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return registro;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String nome, MeterRegistry meterRegistry) {
+        var pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(nome);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -1,5 +1,6 @@
 package com.filiperobot.aluraforumapi.infra.exceptions;
 
+import com.filiperobot.aluraforumapi.infra.cache.SingleFlightTimeoutException;
 import com.filiperobot.aluraforumapi.infra.exceptions.DTO.DadosErrosValidacao;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
@@ -10,6 +11,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.HashMap;
@@ -49,6 +51,16 @@ public class TratadorDeErros {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Acesso negado");
     }
 
+    @ExceptionHandler(SingleFlightTimeoutException.class)
+    public ResponseEntity<String> tratarErroTempoEsgotado() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Tempo esgotado, tente novamente");
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> tratarResponseStatus(ResponseStatusException ex) {
+        return ResponseEntity.status(ex.getStatusCode()).body(ex.getReason());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> tratarErro500(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erro: " + ex.getLocalizedMessage());
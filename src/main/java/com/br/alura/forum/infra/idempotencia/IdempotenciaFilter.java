@@ -0,0 +1,255 @@
+package com.filiperobot.aluraforumapi.infra.idempotencia;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final List<String> ROTAS = List.of("/topicos", "/respostas");
+
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    // ordem de criação; como o ttl é o mesmo para todas, a mais antiga é também a próxima a expirar
+    private final ConcurrentLinkedQueue<Entrada> ordem = new ConcurrentLinkedQueue<>();
+
+    private final Duration ttl;
+    private final Duration esperaMaxima;
+    private final int maximoEntradas;
+    private final int maximoCorpo;
+
+    public IdempotenciaFilter(@Value("${alura.forum.api.idempotencia.ttl:24h}") Duration ttl,
+                              @Value("${alura.forum.api.idempotencia.espera-maxima:10s}") Duration esperaMaxima,
+                              @Value("${alura.forum.api.idempotencia.maximo-entradas:10000}") int maximoEntradas,
+                              @Value("${alura.forum.api.idempotencia.maximo-corpo:64KB}") DataSize maximoCorpo) {
+        this.ttl = ttl;
+        this.esperaMaxima = esperaMaxima;
+        this.maximoEntradas = maximoEntradas;
+        this.maximoCorpo = (int) maximoCorpo.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !ROTAS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // o corpo é lido antes para que a mesma chave com outro conteúdo seja recusada em vez de reproduzida
+        var corpo = request.getInputStream().readNBytes(maximoCorpo + 1);
+        if (corpo.length > maximoCorpo) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "Corpo grande demais para uma requisição com chave de idempotência");
+            return;
+        }
+
+        var chave = chave(request);
+        var nova = new Entrada(chave, hash(corpo), System.nanoTime() + ttl.toNanos());
+        var entrada = entradas.compute(chave, (k, atual) -> atual == null || atual.expirada() ? nova : atual);
+
+        if (entrada != nova) {
+            if (!MessageDigest.isEqual(entrada.hashCorpo, nova.hashCorpo)) {
+                response.sendError(UNPROCESSABLE_ENTITY,
+                        "Chave de idempotência já usada com outro corpo de requisição");
+                return;
+            }
+            reproduzir(entrada, response);
+            return;
+        }
+
+        ordem.add(nova);
+        descartarExcedentes();
+
+        var wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(new RequisicaoComCorpo(request, corpo), wrapper);
+        } catch (IOException | ServletException | RuntimeException exception) {
+            entradas.remove(chave, nova);
+            nova.resposta.completeExceptionally(exception);
+            throw exception;
+        }
+
+        // respostas grandes não ficam guardadas; uma nova tentativa executa de novo em vez de ocupar memória
+        if (wrapper.getStatus() >= 500 || wrapper.getContentSize() > maximoCorpo) {
+            entradas.remove(chave, nova);
+        }
+        nova.resposta.complete(new RespostaGravada(
+                wrapper.getStatus(),
+                wrapper.getContentType(),
+                wrapper.getHeader(HttpHeaders.LOCATION),
+                wrapper.getContentAsByteArray()));
+
+        wrapper.copyBodyToResponse();
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.api.idempotencia.limpeza-ms:60000}")
+    public void removerExpiradas() {
+        entradas.values().removeIf(Entrada::expirada);
+        ordem.removeIf(entrada -> entrada.expirada() || entradas.get(entrada.chave) != entrada);
+    }
+
+    // acima do limite as chaves mais antigas saem primeiro, mesmo antes do ttl
+    private void descartarExcedentes() {
+        while (entradas.size() > maximoEntradas) {
+            var maisAntiga = ordem.poll();
+            if (maisAntiga == null) {
+                return;
+            }
+            entradas.remove(maisAntiga.chave, maisAntiga);
+        }
+    }
+
+    private void reproduzir(Entrada entrada, HttpServletResponse response) throws IOException {
+        RespostaGravada gravada;
+        try {
+            gravada = entrada.resposta.get(esperaMaxima.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException exception) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "Requisição com a mesma chave de idempotência em andamento");
+            return;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        response.setStatus(gravada.status());
+        if (gravada.contentType() != null) {
+            response.setContentType(gravada.contentType());
+        }
+        if (gravada.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, gravada.location());
+        }
+        response.setHeader("Idempotency-Replayed", "true");
+        response.setContentLength(gravada.corpo().length);
+        response.getOutputStream().write(gravada.corpo());
+    }
+
+    private static String chave(HttpServletRequest request) {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        var principal = authentication != null ? authentication.getName() : "anonimo";
+
+        return principal + ' ' + request.getServletPath() + ' ' + request.getHeader(HEADER);
+    }
+
+    private static byte[] hash(byte[] corpo) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(corpo);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private record RespostaGravada(int status, String contentType, String location, byte[] corpo) {
+    }
+
+    private static final class Entrada {
+        private final String chave;
+        private final byte[] hashCorpo;
+        private final long expiraEm;
+        private final CompletableFuture<RespostaGravada> resposta = new CompletableFuture<>();
+
+        private Entrada(String chave, byte[] hashCorpo, long expiraEm) {
+            this.chave = chave;
+            this.hashCorpo = hashCorpo;
+            this.expiraEm = expiraEm;
+        }
+
+        private boolean expirada() {
+            return System.nanoTime() - expiraEm > 0;
+        }
+    }
+
+    private static final class RequisicaoComCorpo extends HttpServletRequestWrapper {
+        private final byte[] corpo;
+
+        private RequisicaoComCorpo(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // o corpo já está em memória, então para a leitura assíncrona tudo fica disponível de imediato
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException exception) {
+                        readListener.onError(exception);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    getCharacterEncoding() != null ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8));
+        }
+    }
+}
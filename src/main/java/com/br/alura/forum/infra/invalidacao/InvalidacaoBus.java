@@ -0,0 +1,197 @@
+package com.filiperobot.aluraforumapi.infra.invalidacao;
+
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+public class InvalidacaoBus {
+
+    public static final String TUDO = "*";
+
+    private static final int TAMANHO_LOTE = 500;
+
+    private final String origem = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    private final Map<String, List<Consumer<String>>> assinantes = new ConcurrentHashMap<>();
+    private final Map<String, Cursor> cursores = new ConcurrentHashMap<>();
+
+    private final Timer latencia;
+    private final Duration margem;
+    private final Duration retencao;
+
+    public InvalidacaoBus(JdbcTemplate jdbcTemplate, Shards shards, ObjectProvider<CacheManager> cacheManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${alura.forum.invalidacao.margem:5s}") Duration margem,
+                          @Value("${alura.forum.invalidacao.retencao:10m}") Duration retencao) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.cacheManager = cacheManager;
+        this.margem = margem;
+        this.retencao = retencao;
+        this.latencia = Timer.builder("forum.invalidacao.latencia")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("forum.invalidacao.atraso.leitura", cursores, InvalidacaoBus::segundosDesdeUltimaLeitura);
+    }
+
+    public void assinar(String regiao, Consumer<String> invalidar) {
+        assinantes.computeIfAbsent(regiao, r -> new CopyOnWriteArrayList<>()).add(invalidar);
+    }
+
+    // roda na conexão da transação de quem escreve, então o registro só aparece se a escrita for confirmada. O
+    // insert fica para o beforeCommit: o criado_em sai colado ao commit, e a margem da leitura só precisa cobrir
+    // essa distância, e não a duração da transação inteira
+    public void publicar(String regiao, String chave) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inserir(regiao, chave);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                inserir(regiao, chave);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.invalidacao.intervalo-ms:500}")
+    public void acompanhar() {
+        shards.paraCada(shard -> {
+            try {
+                acompanhar(cursores.computeIfAbsent(shard, s -> new Cursor()));
+            } catch (RuntimeException exception) {
+                log.warn("Falha ao ler invalidações da shard {}", shard, exception);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.invalidacao.limpeza-ms:60000}")
+    public void aparar() {
+        shards.paraCada(shard -> {
+            int removidos;
+            do {
+                removidos = jdbcTemplate.update("""
+                        delete from invalidacoes where criado_em < now(3) - interval ? second
+                        order by criado_em limit ?""", retencao.toSeconds(), TAMANHO_LOTE * 10);
+            } while (removidos == TAMANHO_LOTE * 10);
+        });
+    }
+
+    // transações confirmadas fora de ordem podem gravar um criado_em menor que o já lido, então cada leitura
+    // volta uma margem no tempo e descarta os ids já aplicados
+    private void acompanhar(Cursor cursor) {
+        var agora = jdbcTemplate.queryForObject("select now(3)", Timestamp.class);
+        long semLeitura = System.currentTimeMillis() - cursor.ultimaLeitura;
+
+        if (cursor.desde == null || semLeitura > retencao.toMillis()) {
+            if (cursor.desde != null) {
+                log.warn("Invalidações perdidas após {} ms sem leitura, descartando todos os caches", semLeitura);
+                assinantes.keySet().forEach(regiao -> despachar(regiao, TUDO));
+            }
+            cursor.iniciar(agora);
+            return;
+        }
+
+        var criadoEm = new Timestamp(cursor.desde.getTime() - margem.toMillis());
+        long id = -1;
+        List<Registro> registros;
+        do {
+            registros = jdbcTemplate.query("""
+                            select id, regiao, chave, origem, criado_em from invalidacoes
+                            where criado_em > ? or (criado_em = ? and id > ?)
+                            order by criado_em, id limit ?""",
+                    (rs, rowNum) -> new Registro(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            rs.getTimestamp(5)),
+                    criadoEm, criadoEm, id, TAMANHO_LOTE);
+
+            for (var registro : registros) {
+                if (cursor.aplicados.putIfAbsent(registro.id(), registro.criadoEm().getTime()) == null
+                        && !origem.equals(registro.origem())) {
+                    despachar(registro.regiao(), registro.chave());
+                    latencia.record(Math.max(0, agora.getTime() - registro.criadoEm().getTime()), TimeUnit.MILLISECONDS);
+                }
+            }
+
+            if (!registros.isEmpty()) {
+                var ultimo = registros.get(registros.size() - 1);
+                criadoEm = ultimo.criadoEm();
+                id = ultimo.id();
+            }
+        } while (registros.size() == TAMANHO_LOTE);
+
+        long esquecerAntes = agora.getTime() - margem.toMillis();
+        cursor.aplicados.values().removeIf(aplicadoEm -> aplicadoEm < esquecerAntes);
+        cursor.desde = agora;
+        cursor.ultimaLeitura = System.currentTimeMillis();
+    }
+
+    private void inserir(String regiao, String chave) {
+        jdbcTemplate.update("insert into invalidacoes(regiao, chave, origem) values (?, ?, ?)", regiao, chave, origem);
+    }
+
+    private void despachar(String regiao, String chave) {
+        assinantes.getOrDefault(regiao, List.of()).forEach(assinante -> {
+            try {
+                assinante.accept(chave);
+            } catch (RuntimeException exception) {
+                log.warn("Falha ao invalidar {} em {}", chave, regiao, exception);
+            }
+        });
+
+        var caches = cacheManager.getIfAvailable();
+        var cache = caches != null ? caches.getCache(regiao) : null;
+        if (cache != null) {
+            if (TUDO.equals(chave)) {
+                cache.clear();
+            } else {
+                cache.evict(chave);
+            }
+        }
+    }
+
+    private static double segundosDesdeUltimaLeitura(Map<String, Cursor> cursores) {
+        long agora = System.currentTimeMillis();
+        return cursores.values().stream()
+                .mapToLong(cursor -> agora - cursor.ultimaLeitura)
+                .max()
+                .orElse(0) / 1000.0;
+    }
+
+    private record Registro(long id, String regiao, String chave, String origem, Timestamp criadoEm) {
+    }
+
+    private static final class Cursor {
+        private Timestamp desde;
+        private volatile long ultimaLeitura = System.currentTimeMillis();
+        private final Map<Long, Long> aplicados = new HashMap<>();
+
+        private void iniciar(Timestamp agora) {
+            desde = agora;
+            ultimaLeitura = System.currentTimeMillis();
+            aplicados.clear();
+        }
+    }
+}
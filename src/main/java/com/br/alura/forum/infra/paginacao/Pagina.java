@@ -0,0 +1,75 @@
+package com.filiperobot.aluraforumapi.infra.paginacao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.io.IOException;
+import java.util.List;
+
+// envelope enxuto no lugar do PageImpl, que repete pageable, sort e metadados derivados a cada resposta.
+// total fica nulo quando a consulta não conta as linhas
+public record Pagina<T>(List<T> conteudo, int pagina, int tamanho, boolean temProxima, Long total)
+        implements JsonSerializable {
+
+    private static final SerializedString CONTEUDO = new SerializedString("conteudo");
+    private static final SerializedString PAGINA = new SerializedString("pagina");
+    private static final SerializedString TAMANHO = new SerializedString("tamanho");
+    private static final SerializedString TEM_PROXIMA = new SerializedString("temProxima");
+    private static final SerializedString TOTAL = new SerializedString("total");
+
+    public static <T> Pagina<T> de(Page<T> page) {
+        return new Pagina<>(page.getContent(), page.getNumber(), page.getSize(), page.hasNext(), page.getTotalElements());
+    }
+
+    public static <T> Pagina<T> de(Slice<T> slice) {
+        return new Pagina<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(), null);
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartObject();
+
+        gen.writeFieldName(CONTEUDO);
+        gen.writeStartArray(conteudo, conteudo.size());
+        // o serializador do tipo é resolvido uma vez por classe, não a cada item
+        Class<?> tipo = null;
+        JsonSerializer<Object> serializer = null;
+        for (var item : conteudo) {
+            if (item == null) {
+                serializers.defaultSerializeNull(gen);
+                continue;
+            }
+            if (item.getClass() != tipo) {
+                tipo = item.getClass();
+                serializer = serializers.findValueSerializer(tipo);
+            }
+            serializer.serialize(item, gen, serializers);
+        }
+        gen.writeEndArray();
+
+        gen.writeFieldName(PAGINA);
+        gen.writeNumber(pagina);
+        gen.writeFieldName(TAMANHO);
+        gen.writeNumber(tamanho);
+        gen.writeFieldName(TEM_PROXIMA);
+        gen.writeBoolean(temProxima);
+        if (total != null) {
+            gen.writeFieldName(TOTAL);
+            gen.writeNumber(total);
+        }
+
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+}
@@ -0,0 +1,94 @@
+package com.filiperobot.aluraforumapi.infra.ratelimit;
+
+import com.filiperobot.aluraforumapi.domain.user.Usuario;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final long NANOS_POR_SEGUNDO = 1_000_000_000L;
+
+    private final RateLimitProperties properties;
+    private final TokenBuckets buckets = new TokenBuckets(64);
+
+    private final String[] prefixos;
+    private final RateLimitProperties.Limite[] limites;
+
+    public RateLimitFilter(RateLimitProperties properties) {
+        this.properties = properties;
+
+        List<String> rotas = properties.rotas() != null ? new ArrayList<>(properties.rotas().keySet()) : List.of();
+        this.prefixos = new String[rotas.size() + 1];
+        this.limites = new RateLimitProperties.Limite[rotas.size() + 1];
+        this.limites[0] = properties.padrao();
+        for (int i = 0; i < rotas.size(); i++) {
+            prefixos[i + 1] = "/" + rotas.get(i);
+            limites[i + 1] = properties.limite(rotas.get(i));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.habilitado();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !(authentication.getPrincipal() instanceof Usuario usuario)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        int rota = rota(request.getServletPath());
+        var limite = limites[rota];
+        long resultado = buckets.consumir(TokenBuckets.chave(usuario.getId(), rota),
+                limite.capacidade(), limite.reposicaoPorSegundo(), System.nanoTime());
+
+        response.setIntHeader("RateLimit-Limit", limite.capacidade());
+
+        if (resultado < 0) {
+            long segundos = Math.max(1, (-resultado - 1 + NANOS_POR_SEGUNDO - 1) / NANOS_POR_SEGUNDO);
+            response.setIntHeader("RateLimit-Remaining", 0);
+            response.setHeader("RateLimit-Reset", Long.toString(segundos));
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(segundos));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Limite de requisições excedido");
+            return;
+        }
+
+        long reset = (long) Math.ceil((limite.capacidade() - resultado) / limite.reposicaoPorSegundo());
+        response.setHeader("RateLimit-Remaining", Long.toString(resultado));
+        response.setHeader("RateLimit-Reset", Long.toString(reset));
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.api.rate-limit.limpeza-ms:60000}")
+    public void removerOciosos() {
+        buckets.removerOciosos(System.nanoTime() - properties.ociosidade().toNanos());
+    }
+
+    private int rota(String caminho) {
+        for (int i = 1; i < prefixos.length; i++) {
+            if (caminho.startsWith(prefixos[i])) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.filiperobot.aluraforumapi.infra.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties("alura.forum.api.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean habilitado,
+        @DefaultValue("10m") Duration ociosidade,
+        @DefaultValue Limite padrao,
+        Map<String, Limite> rotas) {
+
+    public record Limite(@DefaultValue("60") int capacidade, @DefaultValue("1") double reposicaoPorSegundo) {
+    }
+
+    public Limite limite(String rota) {
+        return rotas != null ? rotas.getOrDefault(rota, padrao) : padrao;
+    }
+}
@@ -0,0 +1,159 @@
+package com.filiperobot.aluraforumapi.infra.ratelimit;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+public class TokenBuckets {
+
+    private static final double NANOS_POR_SEGUNDO = 1_000_000_000d;
+
+    private final Faixa[] faixas;
+    private final int mascaraFaixas;
+
+    public TokenBuckets(int quantidadeFaixas) {
+        if (Integer.bitCount(quantidadeFaixas) != 1) {
+            throw new IllegalArgumentException("A quantidade de faixas deve ser uma potência de 2");
+        }
+        this.faixas = new Faixa[quantidadeFaixas];
+        this.mascaraFaixas = quantidadeFaixas - 1;
+        for (int i = 0; i < quantidadeFaixas; i++) {
+            faixas[i] = new Faixa(16);
+        }
+    }
+
+    public static long chave(long usuarioId, int rota) {
+        return (usuarioId << 8) | (rota & 0xFF);
+    }
+
+    // retorna os tokens restantes, ou -(nanos até o próximo token) - 1 quando a requisição deve ser rejeitada
+    public long consumir(long chave, int capacidade, double reposicaoPorSegundo, long agoraNanos) {
+        long hash = misturar(chave);
+        var faixa = faixas[(int) (hash >>> 32) & mascaraFaixas];
+
+        faixa.lock.lock();
+        try {
+            int slot = faixa.slot(chave, (int) hash, capacidade, agoraNanos);
+
+            double tokens = Math.min(capacidade,
+                    faixa.tokens[slot] + (agoraNanos - faixa.atualizadoEm[slot]) * reposicaoPorSegundo / NANOS_POR_SEGUNDO);
+            faixa.atualizadoEm[slot] = agoraNanos;
+
+            if (tokens >= 1) {
+                faixa.tokens[slot] = tokens - 1;
+                return (long) (tokens - 1);
+            }
+
+            faixa.tokens[slot] = tokens;
+            return -(long) ((1 - tokens) * NANOS_POR_SEGUNDO / reposicaoPorSegundo) - 1;
+        } finally {
+            faixa.lock.unlock();
+        }
+    }
+
+    public int removerOciosos(long limiteNanos) {
+        int removidos = 0;
+
+        for (var faixa : faixas) {
+            faixa.lock.lock();
+            try {
+                removidos += faixa.removerAtualizadosAntesDe(limiteNanos);
+            } finally {
+                faixa.lock.unlock();
+            }
+        }
+
+        return removidos;
+    }
+
+    public int tamanho() {
+        int tamanho = 0;
+        for (var faixa : faixas) {
+            tamanho += faixa.tamanho;
+        }
+        return tamanho;
+    }
+
+    private static long misturar(long chave) {
+        chave ^= chave >>> 33;
+        chave *= 0xff51afd7ed558ccdL;
+        chave ^= chave >>> 33;
+        return chave;
+    }
+
+    private static final class Faixa {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // ocupado marca o slot em uso: qualquer valor de chave é válido, inclusive 0 (usuário 0 na rota 0)
+        private boolean[] ocupado;
+        private long[] chaves;
+        private double[] tokens;
+        private long[] atualizadoEm;
+        private int tamanho;
+
+        private Faixa(int capacidade) {
+            alocar(capacidade);
+        }
+
+        private int slot(long chave, int hash, int capacidadeBucket, long agoraNanos) {
+            int mascara = chaves.length - 1;
+            int slot = hash & mascara;
+
+            while (ocupado[slot]) {
+                if (chaves[slot] == chave) {
+                    return slot;
+                }
+                slot = (slot + 1) & mascara;
+            }
+
+            if ((tamanho + 1) * 2 > chaves.length) {
+                redimensionar(chaves.length * 2, false, 0);
+                return slot(chave, hash, capacidadeBucket, agoraNanos);
+            }
+
+            ocupado[slot] = true;
+            chaves[slot] = chave;
+            tokens[slot] = capacidadeBucket;
+            atualizadoEm[slot] = agoraNanos;
+            tamanho++;
+            return slot;
+        }
+
+        private int removerAtualizadosAntesDe(long limiteNanos) {
+            int anterior = tamanho;
+            redimensionar(chaves.length, true, limiteNanos);
+            return anterior - tamanho;
+        }
+
+        private void redimensionar(int capacidade, boolean descartarOciosos, long limiteNanos) {
+            var ocupadoAntigo = ocupado;
+            var chavesAntigas = chaves;
+            var tokensAntigos = tokens;
+            var atualizadoEmAntigo = atualizadoEm;
+
+            alocar(capacidade);
+
+            for (int i = 0; i < chavesAntigas.length; i++) {
+                boolean ocioso = descartarOciosos && atualizadoEmAntigo[i] - limiteNanos < 0;
+                if (ocupadoAntigo[i] && !ocioso) {
+                    int mascara = chaves.length - 1;
+                    int slot = (int) misturar(chavesAntigas[i]) & mascara;
+                    while (ocupado[slot]) {
+                        slot = (slot + 1) & mascara;
+                    }
+                    ocupado[slot] = true;
+                    chaves[slot] = chavesAntigas[i];
+                    tokens[slot] = tokensAntigos[i];
+                    atualizadoEm[slot] = atualizadoEmAntigo[i];
+                    tamanho++;
+                }
+            }
+        }
+
+        private void alocar(int capacidade) {
+            ocupado = new boolean[capacidade];
+            chaves = new long[capacidade];
+            tokens = new double[capacidade];
+            atualizadoEm = new long[capacidade];
+            tamanho = 0;
+        }
+    }
+}
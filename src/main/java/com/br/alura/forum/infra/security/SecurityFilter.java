@@ -1,33 +1,49 @@
 package com.filiperobot.aluraforumapi.infra.security;
 
 import com.filiperobot.aluraforumapi.domain.user.UsuarioRepository;
+import com.filiperobot.aluraforumapi.infra.tempos.Fase;
+import com.filiperobot.aluraforumapi.infra.tempos.TemposRequisicao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Component(value = "mySecurityFilter")
-@RequiredArgsConstructor
 public class SecurityFilter extends OncePerRequestFilter {
 
     public final TokenService tokenService;
     public final UsuarioRepository usuarioRepository;
 
+    private final Timer extracaoToken;
+    private final Timer verificacaoToken;
+    private final Timer carregamentoUsuario;
+
+    public SecurityFilter(TokenService tokenService, UsuarioRepository usuarioRepository, MeterRegistry meterRegistry) {
+        this.tokenService = tokenService;
+        this.usuarioRepository = usuarioRepository;
+        this.extracaoToken = fase(meterRegistry, "extrair-token");
+        this.verificacaoToken = fase(meterRegistry, "verificar-token");
+        this.carregamentoUsuario = fase(meterRegistry, "carregar-usuario");
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        var tokenJWT = recuperarToken(request);
+        var tokenJWT = extracaoToken.record(() -> recuperarToken(request));
 
         if (tokenJWT != null) {
-            var subject = tokenService.getSubject(tokenJWT);
+            var subject = medir(Fase.TOKEN, verificacaoToken, () -> tokenService.getSubject(tokenJWT));
 
-            var usuario = usuarioRepository.findByEmail(subject);
+            var usuario = medir(Fase.USUARIO, carregamentoUsuario, () -> usuarioRepository.findByEmail(subject));
 
             var authentication = new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities());
 
@@ -50,4 +66,22 @@ public class SecurityFilter extends OncePerRequestFilter {
 
         return null;
     }
+
+    // uma medição por fase, que alimenta o timer do filtro e o Server-Timing da requisição
+    private static <T> T medir(Fase fase, Timer timer, Supplier<T> tarefa) {
+        var tempos = TemposRequisicao.atual();
+        long inicio = System.nanoTime();
+        tempos.iniciar(fase, inicio);
+        try {
+            return tarefa.get();
+        } finally {
+            long fim = System.nanoTime();
+            tempos.encerrar(fase, fim);
+            timer.record(fim - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer fase(MeterRegistry meterRegistry, String fase) {
+        return Timer.builder("forum.seguranca.filtro").tag("fase", fase).register(meterRegistry);
+    }
 }
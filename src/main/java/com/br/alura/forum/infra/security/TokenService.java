@@ -5,6 +5,8 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.filiperobot.aluraforumapi.domain.user.Usuario;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -18,17 +20,26 @@ public class TokenService {
     @Value("${alura.forum.api.security.token.secret}")
     private String secret;
 
+    private final Timer geracao;
+
+    // a verificação é medida pelo SecurityFilter, na fase verificar-token
+    public TokenService(MeterRegistry meterRegistry) {
+        this.geracao = Timer.builder("forum.token").tag("operacao", "gerar").register(meterRegistry);
+    }
+
     public String gerarToken(Usuario usuario) {
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(this.secret);
-            return JWT.create()
-                    .withIssuer("Alura Forum API")
-                    .withSubject(usuario.getEmail())
-                    .withExpiresAt(dataExpiracao())
-                    .sign(algorithm);
-        } catch (JWTCreationException exception){
-            throw new RuntimeException("Erro ao gerar o Token JWT", exception);
-        }
+        return geracao.record(() -> {
+            try {
+                Algorithm algorithm = Algorithm.HMAC256(this.secret);
+                return JWT.create()
+                        .withIssuer("Alura Forum API")
+                        .withSubject(usuario.getEmail())
+                        .withExpiresAt(dataExpiracao())
+                        .sign(algorithm);
+            } catch (JWTCreationException exception){
+                throw new RuntimeException("Erro ao gerar o Token JWT", exception);
+            }
+        });
     }
 
     private Instant dataExpiracao() {
@@ -0,0 +1,115 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+// usuários e cursos só são gravados na primeira shard; as outras recebem uma cópia de cada linha com o mesmo id,
+// para as chaves estrangeiras de tópicos e respostas, os joins das leituras e os da projeção funcionarem em
+// qualquer shard. A cópia vai depois do commit na primeira shard, e o que se perder é completado na inicialização
+@Slf4j
+public class ReferenciasReplicadas {
+
+    static final List<String> TABELAS = List.of("usuarios", "cursos");
+
+    private final JdbcTemplate primaria;
+    private final Map<String, NamedParameterJdbcTemplate> replicas = new LinkedHashMap<>();
+    private final Map<String, List<String>> comandosDepois = new ConcurrentHashMap<>();
+
+    public ReferenciasReplicadas(DataSource primaria, Map<String, ? extends DataSource> replicas) {
+        this.primaria = primaria != null ? new JdbcTemplate(primaria) : null;
+        replicas.forEach((shard, dataSource) -> this.replicas.put(shard, new NamedParameterJdbcTemplate(dataSource)));
+    }
+
+    public static ReferenciasReplicadas semReplicas() {
+        return new ReferenciasReplicadas(null, Map.of());
+    }
+
+    // comando executado em cada shard que recebeu uma cópia da tabela, com o id da linha em :id
+    public void aoReplicar(String tabela, String comando) {
+        comandosDepois.computeIfAbsent(tabela, t -> new CopyOnWriteArrayList<>()).add(comando);
+    }
+
+    // depois do commit na primeira shard e antes dos outros callbacks, para os listeners de depois do commit já
+    // encontrarem as cópias
+    public void alterada(String tabela, Long id) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            replicar(tabela, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                replicar(tabela, id);
+            }
+        });
+    }
+
+    // linhas removidas da primeira shard também saem das outras; quando ainda há tópicos apontando para elas,
+    // a chave estrangeira segura a cópia, que continua válida para eles
+    void replicar(String tabela, Long id) {
+        var linhas = primaria.queryForList("select * from " + tabela + " where id = ?", id);
+        replicas.forEach((shard, jdbcTemplate) -> {
+            try {
+                if (linhas.isEmpty()) {
+                    jdbcTemplate.update("delete from " + tabela + " where id = :id", Map.of("id", id));
+                } else {
+                    jdbcTemplate.update(upsert(tabela, linhas.get(0).keySet()), linhas.get(0));
+                    comandosDepois.getOrDefault(tabela, List.of())
+                            .forEach(comando -> jdbcTemplate.update(comando, Map.of("id", id)));
+                }
+            } catch (DataAccessException exception) {
+                log.warn("Não foi possível replicar {} {} na shard {}", tabela, id, shard, exception);
+            }
+        });
+    }
+
+    // copia as tabelas inteiras; são pequenas perto de tópicos e respostas e só mudam por cadastro
+    public void sincronizar() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        for (var tabela : TABELAS) {
+            var linhas = primaria.queryForList("select * from " + tabela);
+            if (linhas.isEmpty()) {
+                continue;
+            }
+            var comando = upsert(tabela, linhas.get(0).keySet());
+            @SuppressWarnings("unchecked")
+            Map<String, ?>[] parametros = linhas.toArray(Map[]::new);
+            replicas.forEach((shard, jdbcTemplate) -> {
+                jdbcTemplate.batchUpdate(comando, parametros);
+                log.info("{} {} replicados na shard {}", linhas.size(), tabela, shard);
+            });
+        }
+    }
+
+    private static String upsert(String tabela, Set<String> colunas) {
+        return "insert into " + tabela + "(" + String.join(", ", colunas) + ") values ("
+                + colunas.stream().map(coluna -> ":" + coluna).collect(Collectors.joining(", "))
+                + ") on duplicate key update "
+                + colunas.stream().filter(coluna -> !coluna.equalsIgnoreCase("id"))
+                .map(coluna -> coluna + " = values(" + coluna + ")").collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,29 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.Map;
+
+@ConfigurationProperties("alura.forum.shards")
+public record ShardProperties(
+        @DefaultValue("false") boolean habilitado,
+        @DefaultValue("10") int tamanhoPool,
+        List<No> nos,
+        Map<Long, String> cursos) {
+
+    public record No(String nome, String url, String username, String password) {
+    }
+
+    public List<String> nomes() {
+        if (!habilitado || nos == null || nos.isEmpty()) {
+            return List.of(Shards.PRINCIPAL);
+        }
+        return nos.stream().map(No::nome).toList();
+    }
+
+    public Map<Long, String> cursos() {
+        return cursos != null ? cursos : Map.of();
+    }
+}
@@ -0,0 +1,23 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ShardRoteamentoDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoteamentoDataSource(Map<String, DataSource> shards, String padrao) {
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(padrao));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    // fora de Shards.naShard as consultas vão para a shard padrão, que guarda usuários e cursos
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Shards.atual();
+    }
+}
@@ -0,0 +1,108 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ShardProperties.class)
+public class ShardingConfiguration {
+
+    // a fábrica é resolvida só no uso: ela depende do dataSource, que por sua vez depende das shards
+    @Bean
+    public Shards shards(ShardProperties properties, ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        return new Shards(properties, entityManagerFactory::getIfAvailable);
+    }
+
+    @Bean
+    public ReferenciasReplicadas referenciasReplicadas(ObjectProvider<DataSourcesPorShard> dataSourcesPorShard) {
+        var porShard = dataSourcesPorShard.getIfAvailable();
+        return porShard != null ? porShard.referencias : ReferenciasReplicadas.semReplicas();
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "alura.forum.shards", name = "habilitado", havingValue = "true")
+    static class DataSourcesPorShard {
+
+        // os ids de tópicos e respostas definem a shard; as mensagens usam o id do tópico ou da resposta
+        private static final List<String> TABELAS_COM_ID_GERADO = List.of("topicos", "respostas");
+
+        private final Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        private final ReferenciasReplicadas referencias;
+
+        DataSourcesPorShard(ShardProperties properties, MeterRegistry meterRegistry) {
+            for (var no : properties.nos()) {
+                var pool = new HikariDataSource();
+                pool.setPoolName("shard-" + no.nome());
+                pool.setJdbcUrl(no.url());
+                pool.setUsername(no.username());
+                pool.setPassword(no.password());
+                pool.setMaximumPoolSize(properties.tamanhoPool());
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+                pools.put(no.nome(), pool);
+            }
+
+            var outras = new LinkedHashMap<>(pools);
+            var primeira = outras.remove(properties.nomes().get(0));
+            referencias = new ReferenciasReplicadas(primeira, outras);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(Shards shards) {
+            return new LazyConnectionDataSourceProxy(
+                    new ShardRoteamentoDataSource(Map.copyOf(pools), shards.nomes().get(0)));
+        }
+
+        // o Flyway só conhece o dataSource principal, então cada shard é migrada separadamente. Todas recebem o
+        // esquema inteiro, com as chaves estrangeiras para usuarios e cursos, que são copiadas da primeira shard
+        @Bean
+        public FlywayMigrationStrategy flywayPorShard(Shards shards) {
+            return flyway -> {
+                pools.forEach((nome, pool) -> {
+                    Flyway.configure().configuration(flyway.getConfiguration()).dataSource(pool).load().migrate();
+                    reservarFaixaDeIds(new JdbcTemplate(pool), shards.primeiroId(nome));
+                });
+                referencias.sincronizar();
+            };
+        }
+
+        @PreDestroy
+        public void aoEncerrar() {
+            pools.values().forEach(HikariDataSource::close);
+        }
+
+        // o MySQL ignora o valor quando a tabela já passou dele, então é seguro repetir a cada inicialização. Sem a
+        // faixa reservada os ids novos cairiam na faixa da primeira shard, então a aplicação não sobe
+        private void reservarFaixaDeIds(JdbcTemplate jdbcTemplate, long primeiroId) {
+            if (primeiroId == 1) {
+                return;
+            }
+            for (var tabela : TABELAS_COM_ID_GERADO) {
+                try {
+                    jdbcTemplate.execute("alter table " + tabela + " auto_increment = " + primeiroId);
+                } catch (RuntimeException exception) {
+                    throw new IllegalStateException("Não foi possível reservar a faixa de ids de " + tabela
+                            + " a partir de " + primeiroId, exception);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import com.filiperobot.aluraforumapi.infra.consultas.ContagemConsultas;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class Shards {
+
+    public static final String PRINCIPAL = "principal";
+
+    // os ids de tópico e de resposta carregam a shard nos 4 bits altos de 32, então adicionar shards não muda a
+    // shard de ids existentes e o id do tópico ainda cabe sem sinal num int do índice de facetas
+    static final int BITS_ID_LOCAL = 28;
+    static final int MAXIMO_SHARDS = 16;
+
+    private static final ThreadLocal<String> ATUAL = new ThreadLocal<>();
+
+    private final List<String> nomes;
+    private final Map<Long, String> cursos;
+    private final ExecutorService executor;
+    private final Supplier<EntityManagerFactory> entityManagerFactory;
+
+    public Shards(ShardProperties properties) {
+        this(properties, () -> null);
+    }
+
+    public Shards(ShardProperties properties, Supplier<EntityManagerFactory> entityManagerFactory) {
+        this.nomes = List.copyOf(properties.nomes());
+        this.entityManagerFactory = entityManagerFactory;
+        this.cursos = Map.copyOf(properties.cursos());
+
+        if (nomes.size() > MAXIMO_SHARDS) {
+            throw new IllegalStateException("No máximo " + MAXIMO_SHARDS + " shards são suportadas");
+        }
+
+        cursos.values().stream()
+                .filter(shard -> !nomes.contains(shard))
+                .findFirst()
+                .ifPresent(shard -> {
+                    throw new IllegalStateException("Shard " + shard + " mapeada para um curso mas não configurada");
+                });
+
+        this.executor = Executors.newFixedThreadPool(nomes.size() * 4, tarefa -> {
+            var thread = new Thread(tarefa, "shards");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<String> nomes() {
+        return nomes;
+    }
+
+    public boolean unica() {
+        return nomes.size() == 1;
+    }
+
+    public static String atual() {
+        return ATUAL.get();
+    }
+
+    // cursos sem mapeamento ficam na primeira shard, onde também vivem usuários e cursos
+    public String doCurso(Long cursoId) {
+        return cursos.getOrDefault(cursoId, nomes.get(0));
+    }
+
+    // sem sharding a faixa dos ids não significa nada, e ids acima de 2^28 continuam na única shard
+    public String doTopico(Long topicoId) {
+        if (!conhecida(topicoId)) {
+            throw new IllegalArgumentException("Tópico " + topicoId + " pertence a uma shard desconhecida");
+        }
+        return unica() ? nomes.get(0) : nomes.get((int) (topicoId >>> BITS_ID_LOCAL));
+    }
+
+    // respostas também têm a faixa de ids da shard reservada, então seguem a mesma regra dos tópicos
+    public String daResposta(Long respostaId) {
+        if (!conhecida(respostaId)) {
+            throw new IllegalArgumentException("Resposta " + respostaId + " pertence a uma shard desconhecida");
+        }
+        return unica() ? nomes.get(0) : nomes.get((int) (respostaId >>> BITS_ID_LOCAL));
+    }
+
+    public boolean conhecida(Long id) {
+        return unica() || (id >>> BITS_ID_LOCAL) < nomes.size();
+    }
+
+    public long primeiroId(String shard) {
+        return ((long) nomes.indexOf(shard) << BITS_ID_LOCAL) + 1;
+    }
+
+    public <T> T naShard(String shard, Supplier<T> operacao) {
+        var anterior = ATUAL.get();
+        ATUAL.set(shard);
+        try {
+            return unica() || shard.equals(anterior) ? operacao.get() : comEntityManagerProprio(shard, operacao);
+        } finally {
+            if (anterior == null) {
+                ATUAL.remove();
+            } else {
+                ATUAL.set(anterior);
+            }
+        }
+    }
+
+    public void naShard(String shard, Runnable operacao) {
+        naShard(shard, () -> {
+            operacao.run();
+            return null;
+        });
+    }
+
+    public void paraCada(Consumer<String> operacao) {
+        nomes.forEach(shard -> naShard(shard, () -> operacao.accept(shard)));
+    }
+
+    public <T> List<T> emTodas(Supplier<T> consulta) {
+        if (unica()) {
+            return List.of(naShard(nomes.get(0), consulta));
+        }
+
+        var consultas = nomes.stream()
+                .map(shard -> CompletableFuture.supplyAsync(
+                        ContagemConsultas.comContextoAtual(() -> naShard(shard, consulta)), executor))
+                .toList();
+
+        return consultas.stream().map(CompletableFuture::join).toList();
+    }
+
+    // cada shard devolve as primeiras offset + size linhas na ordem pedida e o merge descarta o excedente. O id
+    // desempata a ordem, e as chaves são lidas dentro da shard, enquanto as associações ainda podem ser carregadas
+    public <E, T> Page<T> paginar(Pageable pageable, Function<Pageable, Page<E>> consulta, Function<E, T> mapear) {
+        if (unica()) {
+            return naShard(nomes.get(0), () -> consulta.apply(pageable).map(mapear));
+        }
+
+        var ordem = pageable.getSort().getOrderFor("id") != null
+                ? pageable.getSort()
+                : pageable.getSort().and(Sort.by("id"));
+        int limite = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+        var paginas = emTodas(() -> {
+            var pagina = consulta.apply(PageRequest.of(0, limite, ordem));
+            var linhas = pagina.getContent().stream()
+                    .map(entidade -> new Linha<>(chaves(entidade, ordem), mapear.apply(entidade)))
+                    .toList();
+            return new PaginaDaShard<>(linhas, pagina.getTotalElements());
+        });
+
+        var linhas = intercalar(paginas.stream().map(PaginaDaShard::linhas).toList(), comparador(ordem),
+                pageable.getOffset(), pageable.getPageSize());
+        long total = paginas.stream().mapToLong(PaginaDaShard::total).sum();
+
+        return new PageImpl<>(linhas.stream().map(Linha::valor).toList(), pageable, total);
+    }
+
+    // cada lista já vem ordenada da sua shard, basta intercalar as cabeças
+    public static <T> List<T> intercalar(List<List<T>> listas, Comparator<T> ordem, long pular, int limite) {
+        var cabecas = new PriorityQueue<Cursor<T>>((a, b) -> ordem.compare(a.atual(), b.atual()));
+        listas.stream()
+                .filter(lista -> !lista.isEmpty())
+                .forEach(lista -> cabecas.add(new Cursor<>(lista)));
+
+        var resultado = new ArrayList<T>(limite);
+        for (long posicao = 0; !cabecas.isEmpty() && resultado.size() < limite; posicao++) {
+            var cursor = cabecas.poll();
+            if (posicao >= pular) {
+                resultado.add(cursor.atual());
+            }
+            if (cursor.avancar()) {
+                cabecas.add(cursor);
+            }
+        }
+        return resultado;
+    }
+
+    @PreDestroy
+    public void aoEncerrar() {
+        executor.shutdownNow();
+    }
+
+    // com o open-in-view o EntityManager da requisição segura a primeira conexão até o fim, e as operações
+    // seguintes iriam para a shard dela. Cada troca de shard usa um EntityManager próprio, fechado ao sair
+    private <T> T comEntityManagerProprio(String shard, Supplier<T> operacao) {
+        var fabrica = entityManagerFactory.get();
+        if (fabrica == null) {
+            return operacao.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Não é possível trocar para a shard " + shard
+                    + " dentro de uma transação");
+        }
+
+        var anterior = (EntityManagerHolder) TransactionSynchronizationManager.unbindResourceIfPossible(fabrica);
+        var entityManager = fabrica.createEntityManager();
+        TransactionSynchronizationManager.bindResource(fabrica, new EntityManagerHolder(entityManager));
+        try {
+            return operacao.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(fabrica);
+            EntityManagerFactoryUtils.closeEntityManager(entityManager);
+            if (anterior != null) {
+                TransactionSynchronizationManager.bindResource(fabrica, anterior);
+            }
+        }
+    }
+
+    private static List<Object> chaves(Object entidade, Sort ordem) {
+        var propriedades = new BeanWrapperImpl(entidade);
+        var chaves = new ArrayList<>();
+        for (var criterio : ordem) {
+            try {
+                chaves.add(propriedades.getPropertyValue(criterio.getProperty()));
+            } catch (NullValueInNestedPathException exception) {
+                chaves.add(null);
+            }
+        }
+        return chaves;
+    }
+
+    // nulos primeiro na ordem crescente e por último na decrescente, como no MySQL
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Comparator<Linha<T>> comparador(Sort ordem) {
+        var criterios = ordem.toList();
+        return (a, b) -> {
+            for (int i = 0; i < criterios.size(); i++) {
+                var criterio = criterios.get(i);
+                Object valorA = a.chaves().get(i);
+                Object valorB = b.chaves().get(i);
+                if (criterio.isIgnoreCase() && valorA instanceof String textoA && valorB instanceof String textoB) {
+                    valorA = textoA.toLowerCase(Locale.ROOT);
+                    valorB = textoB.toLowerCase(Locale.ROOT);
+                }
+                int comparacao = Comparator.nullsFirst(Comparator.<Comparable>naturalOrder())
+                        .compare((Comparable) valorA, (Comparable) valorB);
+                if (comparacao != 0) {
+                    return criterio.isAscending() ? comparacao : -comparacao;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private record Linha<T>(List<Object> chaves, T valor) {
+    }
+
+    private record PaginaDaShard<T>(List<Linha<T>> linhas, long total) {
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> lista;
+        private int posicao;
+
+        private Cursor(List<T> lista) {
+            this.lista = lista;
+        }
+
+        private T atual() {
+            return lista.get(posicao);
+        }
+
+        private boolean avancar() {
+            return ++posicao < lista.size();
+        }
+    }
+}
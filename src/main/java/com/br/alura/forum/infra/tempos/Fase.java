@@ -0,0 +1,27 @@
+package com.filiperobot.aluraforumapi.infra.tempos;
+
+// o trecho antes de ";dur=" é montado uma vez só, o cabeçalho de cada requisição apenas concatena
+public enum Fase {
+
+    TOKEN("token", "verificacao do JWT"),
+    USUARIO("usuario", "busca do usuario do token"),
+    BANCO("db", "consultas ao banco"),
+    APLICACAO("app", "controller e mapeamento para DTO"),
+    SERIALIZACAO("serializacao", "Jackson");
+
+    private final String nome;
+    private final String prefixo;
+
+    Fase(String nome, String descricao) {
+        this.nome = nome;
+        this.prefixo = nome + ";desc=\"" + descricao + "\";dur=";
+    }
+
+    public String nome() {
+        return nome;
+    }
+
+    String prefixo() {
+        return prefixo;
+    }
+}
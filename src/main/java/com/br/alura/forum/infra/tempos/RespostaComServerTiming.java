@@ -0,0 +1,111 @@
+package com.filiperobot.aluraforumapi.infra.tempos;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+// o cabeçalho precisa sair antes do primeiro byte do corpo. O Jackson só despeja o buffer interno (8 KB) no
+// fim da serialização, então na maioria das respostas a fase de serialização já está completa nesse ponto;
+// em corpos maiores ela aparece parcial, sem obrigar a guardar a resposta inteira em memória
+class RespostaComServerTiming extends HttpServletResponseWrapper {
+
+    static final String CABECALHO = "Server-Timing";
+
+    private final TemposRequisicao tempos;
+    private ServletOutputStream saida;
+    private boolean escrito;
+
+    RespostaComServerTiming(HttpServletResponse response, TemposRequisicao tempos) {
+        super(response);
+        this.tempos = tempos;
+    }
+
+    void escreverCabecalho() {
+        if (escrito) {
+            return;
+        }
+        escrito = true;
+        if (!isCommitted()) {
+            setHeader(CABECALHO, tempos.serverTiming(System.nanoTime()));
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (saida == null) {
+            saida = new Saida(super.getOutputStream());
+        }
+        return saida;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        escreverCabecalho();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        escreverCabecalho();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        escreverCabecalho();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        escreverCabecalho();
+        super.sendError(sc);
+    }
+
+    private class Saida extends ServletOutputStream {
+
+        private final ServletOutputStream destino;
+
+        private Saida(ServletOutputStream destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            escreverCabecalho();
+            destino.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            escreverCabecalho();
+            destino.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            escreverCabecalho();
+            destino.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            escreverCabecalho();
+            destino.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return destino.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            destino.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.filiperobot.aluraforumapi.infra.tempos;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+// a fase de aplicação vai do handler escolhido até o início da serialização; sem corpo, até o fim do handler
+@Configuration
+public class ServerTimingConfiguration implements WebMvcConfigurer {
+
+    // substitui o conversor JSON do Spring Boot, que só é criado quando não existe outro
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                var tempos = TemposRequisicao.atual();
+                tempos.encerrar(Fase.APLICACAO);
+                tempos.iniciar(Fase.SERIALIZACAO);
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    tempos.encerrar(Fase.SERIALIZACAO);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                TemposRequisicao.atual().iniciar(Fase.APLICACAO);
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                TemposRequisicao.atual().encerrar(Fase.APLICACAO);
+            }
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package com.filiperobot.aluraforumapi.infra.tempos;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// dentro da contagem de consultas (que fora de produção guarda o corpo em buffer) e antes da segurança,
+// para medir a verificação do token e a busca do usuário
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 15)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private final boolean habilitado;
+    private final double amostragemLog;
+
+    public ServerTimingFilter(@Value("${alura.forum.server-timing.habilitado:true}") boolean habilitado,
+                              @Value("${alura.forum.server-timing.amostragem-log:0}") double amostragemLog) {
+        this.habilitado = habilitado;
+        this.amostragemLog = amostragemLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!habilitado) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var tempos = TemposRequisicao.iniciarRequisicao();
+        var resposta = new RespostaComServerTiming(response, tempos);
+
+        try {
+            filterChain.doFilter(request, resposta);
+            // respostas sem corpo não passam pelo gancho de escrita
+            resposta.escreverCabecalho();
+        } finally {
+            if (amostragemLog > 0 && ThreadLocalRandom.current().nextDouble() < amostragemLog) {
+                var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                var rota = uri != null ? uri.toString() : "desconhecida";
+                log.info("server-timing {}", tempos.registro(request.getMethod(), rota, response.getStatus(), System.nanoTime()));
+            }
+            TemposRequisicao.encerrarRequisicao();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.filiperobot.aluraforumapi.infra.tempos;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+// medir uma fase só lê o relógio e soma num array. As instâncias voltam para um pool no fim da requisição, e não
+// ficam presas à thread: com spring.threads.virtual.enabled cada requisição roda numa thread nova, e uma instância
+// por thread seria uma alocação por requisição. Fora de uma requisição (jobs, threads das shards) atual() devolve
+// uma instância inativa e as medições são ignoradas
+public final class TemposRequisicao {
+
+    private static final ThreadLocal<TemposRequisicao> ATUAL = new ThreadLocal<>();
+    private static final Fase[] FASES = Fase.values();
+    private static final long PARADA = Long.MIN_VALUE;
+    // depois de FASES, que o construtor usa
+    private static final TemposRequisicao INATIVA = new TemposRequisicao();
+    // acima disso, as instâncias de um pico de requisições simultâneas ficam para o coletor
+    private static final ArrayBlockingQueue<TemposRequisicao> LIVRES = new ArrayBlockingQueue<>(512);
+
+    private final long[] acumulado = new long[FASES.length];
+    private final long[] inicio = new long[FASES.length];
+    private final StringBuilder texto = new StringBuilder(256);
+
+    private long inicioRequisicao;
+    private boolean ativo;
+
+    private TemposRequisicao() {
+    }
+
+    public static TemposRequisicao atual() {
+        var tempos = ATUAL.get();
+        return tempos != null ? tempos : INATIVA;
+    }
+
+    static TemposRequisicao iniciarRequisicao() {
+        var tempos = ATUAL.get();
+        if (tempos == null) {
+            tempos = LIVRES.poll();
+            if (tempos == null) {
+                tempos = new TemposRequisicao();
+            }
+            ATUAL.set(tempos);
+        }
+        for (int i = 0; i < FASES.length; i++) {
+            tempos.acumulado[i] = 0;
+            tempos.inicio[i] = PARADA;
+        }
+        tempos.inicioRequisicao = System.nanoTime();
+        tempos.ativo = true;
+        return tempos;
+    }
+
+    static void encerrarRequisicao() {
+        var tempos = ATUAL.get();
+        if (tempos == null) {
+            return;
+        }
+        ATUAL.remove();
+        tempos.ativo = false;
+        LIVRES.offer(tempos);
+    }
+
+    public void iniciar(Fase fase) {
+        iniciar(fase, System.nanoTime());
+    }
+
+    public void encerrar(Fase fase) {
+        encerrar(fase, System.nanoTime());
+    }
+
+    // com os instantes lidos por quem chama, que usa a mesma leitura do relógio na sua própria métrica
+    public void iniciar(Fase fase, long agora) {
+        if (ativo) {
+            inicio[fase.ordinal()] = agora;
+        }
+    }
+
+    public void encerrar(Fase fase, long agora) {
+        int i = fase.ordinal();
+        if (ativo && inicio[i] != PARADA) {
+            acumulado[i] += agora - inicio[i];
+            inicio[i] = PARADA;
+        }
+    }
+
+    public <T> T medir(Fase fase, Supplier<T> tarefa) {
+        iniciar(fase);
+        try {
+            return tarefa.get();
+        } finally {
+            encerrar(fase);
+        }
+    }
+
+    // a consulta da busca do usuário já é a fase dele; as feitas pelo controller ou por carga preguiçosa
+    // durante a serialização saem dessas fases para o db não ser contado duas vezes
+    public void registrarConsulta(long nanos) {
+        if (!ativo || emAndamento(Fase.USUARIO)) {
+            return;
+        }
+        acumulado[Fase.BANCO.ordinal()] += nanos;
+        if (emAndamento(Fase.APLICACAO)) {
+            acumulado[Fase.APLICACAO.ordinal()] -= nanos;
+        }
+        if (emAndamento(Fase.SERIALIZACAO)) {
+            acumulado[Fase.SERIALIZACAO.ordinal()] -= nanos;
+        }
+    }
+
+    // fases ainda em andamento entram com o tempo decorrido até agora
+    String serverTiming(long agora) {
+        texto.setLength(0);
+        for (var fase : FASES) {
+            long nanos = duracao(fase.ordinal(), agora);
+            if (nanos > 0) {
+                texto.append(fase.prefixo());
+                acrescentarMillis(nanos);
+                texto.append(", ");
+            }
+        }
+        texto.append("total;dur=");
+        acrescentarMillis(agora - inicioRequisicao);
+        return texto.toString();
+    }
+
+    // formato chave=valor, em milissegundos, para o log amostrado
+    String registro(String metodo, String rota, int status, long agora) {
+        texto.setLength(0);
+        texto.append("metodo=").append(metodo)
+                .append(" rota=").append(rota)
+                .append(" status=").append(status);
+        for (var fase : FASES) {
+            texto.append(' ').append(fase.nome()).append('=');
+            acrescentarMillis(duracao(fase.ordinal(), agora));
+        }
+        texto.append(" total=");
+        acrescentarMillis(agora - inicioRequisicao);
+        return texto.toString();
+    }
+
+    private boolean emAndamento(Fase fase) {
+        return inicio[fase.ordinal()] != PARADA;
+    }
+
+    private long duracao(int i, long agora) {
+        long nanos = acumulado[i];
+        if (inicio[i] != PARADA) {
+            nanos += agora - inicio[i];
+        }
+        return Math.max(nanos, 0);
+    }
+
+    // três casas decimais sem passar por double nem String.format
+    private void acrescentarMillis(long nanos) {
+        long micros = Math.max(nanos, 0) / 1_000;
+        long fracao = micros % 1_000;
+        texto.append(micros / 1_000).append('.');
+        if (fracao < 100) {
+            texto.append('0');
+        }
+        if (fracao < 10) {
+            texto.append('0');
+        }
+        texto.append(fracao);
+    }
+}
@@ -0,0 +1,197 @@
+package br.com.alura.forum.manutencao;
+
+import br.com.alura.forum.topico.StatusTopico;
+import br.com.alura.forum.topico.TopicoAlteradoEvent;
+import br.com.alura.forum.topico.TopicoIndexado;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class ArquivamentoTopicosJob {
+
+    private static final String TAREFA = "arquivamento-topicos";
+    private static final List<String> TABELAS_ARQUIVO = List.of("topicos_arquivo", "respostas_arquivo");
+    private static final DateTimeFormatter FORMATO_PARTICAO = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TarefaCheckpoint checkpoint;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Shards shards;
+
+    private final Counter topicosArquivados;
+    private final Counter respostasArquivadas;
+
+    private final int mesesRetencao;
+    private final int tamanhoLote;
+    private final double linhasPorSegundo;
+
+    public ArquivamentoTopicosJob(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                  TransactionTemplate transactionTemplate, TarefaCheckpoint checkpoint,
+                                  ApplicationEventPublisher eventPublisher, Shards shards,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${alura.forum.topicos.arquivamento.meses-retencao:6}") int mesesRetencao,
+                                  @Value("${alura.forum.topicos.arquivamento.tamanho-lote:100}") int tamanhoLote,
+                                  @Value("${alura.forum.topicos.arquivamento.linhas-por-segundo:500}") double linhasPorSegundo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.checkpoint = checkpoint;
+        this.eventPublisher = eventPublisher;
+        this.shards = shards;
+        this.mesesRetencao = mesesRetencao;
+        this.tamanhoLote = tamanhoLote;
+        this.linhasPorSegundo = linhasPorSegundo;
+        this.topicosArquivados = meterRegistry.counter("forum.manutencao.topicos.arquivados");
+        this.respostasArquivadas = meterRegistry.counter("forum.manutencao.respostas.arquivadas");
+    }
+
+    @Scheduled(cron = "${alura.forum.topicos.arquivamento.cron:0 30 4 * * *}")
+    public void executar() {
+        shards.paraCada(shard -> executarNaShard());
+    }
+
+    private void executarNaShard() {
+        var limite = LocalDate.now().minusMonths(mesesRetencao).withDayOfMonth(1).atStartOfDay();
+        var throttle = new Throttle(linhasPorSegundo);
+        long ultimoId = checkpoint.carregar(TAREFA);
+
+        criarParticoes(limite);
+
+        try {
+            while (true) {
+                var lote = buscarLote(ultimoId, limite);
+                if (lote.isEmpty()) {
+                    checkpoint.salvar(TAREFA, 0);
+                    break;
+                }
+
+                int linhas = arquivar(lote);
+                ultimoId = lote.get(lote.size() - 1).id();
+                checkpoint.salvar(TAREFA, ultimoId);
+
+                throttle.aguardar(linhas);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<TopicoIndexado> buscarLote(long ultimoId, LocalDateTime limite) {
+        return jdbcTemplate.query("""
+                        select id, status_topico, curso_id, usuario_id from topicos
+                        where id > ? and excluido_em is null and status_topico in ('SOLUCIONADO', 'FECHADO')
+                        and data_criacao < ?
+                        order by id limit ?""",
+                (rs, rowNum) -> new TopicoIndexado(rs.getLong(1), StatusTopico.valueOf(rs.getString(2)),
+                        rs.getLong(3), rs.getLong(4)),
+                ultimoId, Timestamp.valueOf(limite), tamanhoLote);
+    }
+
+    private int arquivar(List<TopicoIndexado> lote) {
+        var parametros = Map.of("ids", lote.stream().map(TopicoIndexado::id).toList());
+
+        return transactionTemplate.execute(status -> {
+            var ids = namedJdbcTemplate.queryForList("""
+                    select id from topicos
+                    where id in (:ids) and excluido_em is null and status_topico in ('SOLUCIONADO', 'FECHADO')
+                    for update""", parametros, Long.class);
+
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            var bloqueados = Map.of("ids", ids);
+
+            int respostas = namedJdbcTemplate.update("""
+                    insert into respostas_arquivo(id, mensagem, topico_id, data_criacao, usuario_id, solucao, arquivado_em)
+                    select id, mensagem, topico_id, data_criacao, usuario_id, solucao, now()
+                    from respostas where topico_id in (:ids)""", bloqueados);
+            int topicos = namedJdbcTemplate.update("""
+                    insert into topicos_arquivo(id, titulo, mensagem, data_criacao, status_topico, usuario_id, curso_id,
+                                                visualizacoes, arquivado_em)
+                    select id, titulo, mensagem, data_criacao, status_topico, usuario_id, curso_id, visualizacoes, now()
+                    from topicos where id in (:ids)""", bloqueados);
+
+            // o texto completo vai junto para o arquivo, que não usa as tabelas de mensagens vivas
+            namedJdbcTemplate.update("""
+                    insert into respostas_arquivo_mensagens(resposta_id, conteudo, comprimida)
+                    select m.resposta_id, m.conteudo, m.comprimida from respostas_mensagens m
+                    join respostas r on r.id = m.resposta_id
+                    where r.topico_id in (:ids)""", bloqueados);
+            namedJdbcTemplate.update("""
+                    insert into topicos_arquivo_mensagens(topico_id, conteudo, comprimida)
+                    select topico_id, conteudo, comprimida from topicos_mensagens
+                    where topico_id in (:ids)""", bloqueados);
+
+            namedJdbcTemplate.update("""
+                    delete from respostas_mensagens
+                    where resposta_id in (select id from respostas where topico_id in (:ids))""", bloqueados);
+            namedJdbcTemplate.update("delete from topicos_mensagens where topico_id in (:ids)", bloqueados);
+            namedJdbcTemplate.update("delete from respostas where topico_id in (:ids)", bloqueados);
+            namedJdbcTemplate.update("delete from topicos where id in (:ids)", bloqueados);
+
+            lote.stream()
+                    .filter(topico -> ids.contains(topico.id()))
+                    .forEach(topico -> eventPublisher.publishEvent(TopicoAlteradoEvent.removido(topico)));
+
+            topicosArquivados.increment(topicos);
+            respostasArquivadas.increment(respostas);
+
+            return topicos + respostas;
+        });
+    }
+
+    private void criarParticoes(LocalDateTime limite) {
+        var maisAntigo = jdbcTemplate.queryForObject("""
+                select min(data_criacao) from topicos
+                where status_topico in ('SOLUCIONADO', 'FECHADO') and data_criacao < ?""",
+                Timestamp.class, Timestamp.valueOf(limite));
+
+        if (maisAntigo == null) {
+            return;
+        }
+
+        var ultimoMes = YearMonth.now().plusMonths(1);
+
+        for (var tabela : TABELAS_ARQUIVO) {
+            var existentes = jdbcTemplate.queryForList("""
+                    select partition_name from information_schema.partitions
+                    where table_schema = database() and table_name = ?""", String.class, tabela);
+
+            // partições de range só podem ser criadas depois da última existente
+            var inicio = existentes.stream()
+                    .filter(particao -> !particao.equals("p_futuro"))
+                    .max(String::compareTo)
+                    .map(particao -> YearMonth.parse(particao, FORMATO_PARTICAO).plusMonths(1))
+                    .orElse(YearMonth.from(maisAntigo.toLocalDateTime()));
+
+            for (var mes = inicio; !mes.isAfter(ultimoMes); mes = mes.plusMonths(1)) {
+                var particao = FORMATO_PARTICAO.format(mes);
+                jdbcTemplate.execute("alter table " + tabela + " reorganize partition p_futuro into ("
+                        + "partition " + particao + " values less than ('" + mes.plusMonths(1).atDay(1) + "'), "
+                        + "partition p_futuro values less than (maxvalue))");
+                log.info("Partição {} criada em {} na shard {}", particao, tabela, Shards.atual());
+            }
+        }
+    }
+}
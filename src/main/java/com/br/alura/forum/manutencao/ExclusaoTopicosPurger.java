@@ -0,0 +1,92 @@
+package br.com.alura.forum.manutencao;
+
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class ExclusaoTopicosPurger {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Shards shards;
+
+    private final Counter topicosRemovidos;
+    private final Counter respostasRemovidas;
+
+    private final int topicosPorExecucao;
+    private final int respostasPorLote;
+    private final double linhasPorSegundo;
+
+    public ExclusaoTopicosPurger(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 Shards shards, MeterRegistry meterRegistry,
+                                 @Value("${alura.forum.topicos.exclusao.topicos-por-execucao:20}") int topicosPorExecucao,
+                                 @Value("${alura.forum.topicos.exclusao.respostas-por-lote:1000}") int respostasPorLote,
+                                 @Value("${alura.forum.topicos.exclusao.linhas-por-segundo:5000}") double linhasPorSegundo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.shards = shards;
+        this.topicosPorExecucao = topicosPorExecucao;
+        this.respostasPorLote = respostasPorLote;
+        this.linhasPorSegundo = linhasPorSegundo;
+        this.topicosRemovidos = meterRegistry.counter("forum.manutencao.topicos.removidos");
+        this.respostasRemovidas = meterRegistry.counter("forum.manutencao.respostas.removidas");
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.topicos.exclusao.intervalo-ms:30000}")
+    public void purgar() {
+        shards.paraCada(this::purgarNaShard);
+    }
+
+    private void purgarNaShard(String shard) {
+        var ids = jdbcTemplate.queryForList("""
+                select id from topicos where excluido_em is not null
+                order by excluido_em limit ?""", Long.class, topicosPorExecucao);
+
+        var throttle = new Throttle(linhasPorSegundo);
+
+        try {
+            for (var id : ids) {
+                List<Long> respostas;
+                do {
+                    respostas = jdbcTemplate.queryForList("select id from respostas where topico_id = ? limit ?",
+                            Long.class, id, respostasPorLote);
+                    if (!respostas.isEmpty()) {
+                        removerRespostas(respostas);
+                    }
+                    throttle.aguardar(respostas.size());
+                } while (respostas.size() == respostasPorLote);
+
+                if (jdbcTemplate.update("delete from topicos where id = ? and excluido_em is not null", id) > 0) {
+                    jdbcTemplate.update("delete from topicos_mensagens where topico_id = ?", id);
+                    topicosRemovidos.increment();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!ids.isEmpty()) {
+            log.debug("{} tópicos excluídos removidos definitivamente na shard {}", ids.size(), shard);
+        }
+    }
+
+    private void removerRespostas(List<Long> respostas) {
+        var parametros = Map.of("ids", respostas);
+
+        // cada lote roda em autocommit, limitando o tamanho de cada transação
+        namedJdbcTemplate.update("delete from respostas_mensagens where resposta_id in (:ids)", parametros);
+        int removidas = namedJdbcTemplate.update("delete from respostas where id in (:ids)", parametros);
+        respostasRemovidas.increment(removidas);
+    }
+}
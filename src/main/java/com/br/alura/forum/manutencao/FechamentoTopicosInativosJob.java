@@ -0,0 +1,144 @@
+package br.com.alura.forum.manutencao;
+
+import br.com.alura.forum.topico.StatusTopico;
+import br.com.alura.forum.topico.TopicoAlteradoEvent;
+import br.com.alura.forum.topico.TopicoIndexado;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class FechamentoTopicosInativosJob {
+
+    private static final String TAREFA = "fechamento-topicos-inativos";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TarefaCheckpoint checkpoint;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Shards shards;
+
+    private final Counter topicosFechados;
+    private final Counter lotesProcessados;
+    private final AtomicLong ultimoIdProcessado = new AtomicLong();
+
+    private final boolean dryRun;
+    private final int diasInatividade;
+    private final int tamanhoLote;
+    private final double linhasPorSegundo;
+
+    public FechamentoTopicosInativosJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                        TarefaCheckpoint checkpoint, ApplicationEventPublisher eventPublisher,
+                                        Shards shards, MeterRegistry meterRegistry,
+                                        @Value("${alura.forum.topicos.fechamento.dry-run:true}") boolean dryRun,
+                                        @Value("${alura.forum.topicos.fechamento.dias-inatividade:180}") int diasInatividade,
+                                        @Value("${alura.forum.topicos.fechamento.tamanho-lote:200}") int tamanhoLote,
+                                        @Value("${alura.forum.topicos.fechamento.linhas-por-segundo:500}") double linhasPorSegundo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.checkpoint = checkpoint;
+        this.eventPublisher = eventPublisher;
+        this.shards = shards;
+        this.dryRun = dryRun;
+        this.diasInatividade = diasInatividade;
+        this.tamanhoLote = tamanhoLote;
+        this.linhasPorSegundo = linhasPorSegundo;
+        this.topicosFechados = Counter.builder("forum.manutencao.topicos.fechados")
+                .tag("dryRun", String.valueOf(dryRun))
+                .register(meterRegistry);
+        this.lotesProcessados = meterRegistry.counter("forum.manutencao.topicos.fechamento.lotes");
+        meterRegistry.gauge("forum.manutencao.topicos.fechamento.checkpoint", ultimoIdProcessado);
+    }
+
+    @Scheduled(cron = "${alura.forum.topicos.fechamento.cron:0 0 3 * * *}")
+    public void executar() {
+        shards.paraCada(this::executarNaShard);
+    }
+
+    // o checkpoint fica na própria shard, então cada uma retoma de onde parou
+    private void executarNaShard(String shard) {
+        var limite = LocalDateTime.now().minusDays(diasInatividade);
+        var throttle = new Throttle(linhasPorSegundo);
+        var tarefa = dryRun ? TAREFA + "-dry-run" : TAREFA;
+        long ultimoId = checkpoint.carregar(tarefa);
+        long total = 0;
+
+        log.info("Fechamento de tópicos inativos iniciado na shard {} a partir do id {} (dryRun={})",
+                shard, ultimoId, dryRun);
+
+        try {
+            while (true) {
+                var lote = buscarLote(ultimoId, limite);
+                if (lote.isEmpty()) {
+                    checkpoint.salvar(tarefa, 0);
+                    break;
+                }
+
+                int fechados = dryRun ? lote.size() : fechar(lote, limite);
+                ultimoId = lote.get(lote.size() - 1).id();
+                total += fechados;
+
+                checkpoint.salvar(tarefa, ultimoId);
+                ultimoIdProcessado.set(ultimoId);
+                topicosFechados.increment(fechados);
+                lotesProcessados.increment();
+
+                throttle.aguardar(lote.size());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Fechamento de tópicos inativos finalizado na shard {}: {} tópicos {} (último id {})",
+                shard, total, dryRun ? "seriam fechados" : "fechados", ultimoId);
+    }
+
+    private List<TopicoIndexado> buscarLote(long ultimoId, LocalDateTime limite) {
+        return jdbcTemplate.query("""
+                        select t.id, t.status_topico, t.curso_id, t.usuario_id from topicos t
+                        where t.id > ? and t.excluido_em is null and t.status_topico in ('NAO_RESPONDIDO', 'NAO_SOLUCIONADO')
+                        and t.data_criacao < ?
+                        and not exists (select 1 from respostas r where r.topico_id = t.id and r.data_criacao >= ?)
+                        order by t.id limit ?""",
+                (rs, rowNum) -> new TopicoIndexado(rs.getLong(1), StatusTopico.valueOf(rs.getString(2)),
+                        rs.getLong(3), rs.getLong(4)),
+                ultimoId, Timestamp.valueOf(limite), Timestamp.valueOf(limite), tamanhoLote);
+    }
+
+    // repete as condições da busca: um tópico que recebeu resposta ou foi excluído depois do select fica como está
+    private int fechar(List<TopicoIndexado> lote, LocalDateTime limite) {
+        var desde = Timestamp.valueOf(limite);
+        return transactionTemplate.execute(status -> {
+            int fechados = 0;
+            int[] atualizados = jdbcTemplate.batchUpdate("""
+                            update topicos t set t.status_topico = 'FECHADO'
+                            where t.id = ? and t.status_topico = ? and t.excluido_em is null
+                            and not exists (select 1 from respostas r where r.topico_id = t.id and r.data_criacao >= ?)""",
+                    lote.stream().map(topico -> new Object[]{topico.id(), topico.statusTopico().name(), desde}).toList());
+
+            for (int i = 0; i < lote.size(); i++) {
+                var topico = lote.get(i);
+                if (atualizados[i] != 0) {
+                    fechados++;
+                    eventPublisher.publishEvent(new TopicoAlteradoEvent(topico, new TopicoIndexado(
+                            topico.id(), StatusTopico.FECHADO, topico.cursoId(), topico.autorId())));
+                }
+            }
+
+            return fechados;
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.alura.forum.manutencao;
+
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoResumoProjetor;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// reprojeta topico_resumo a partir das tabelas de origem, para popular após mudanças de esquema ou corrigir desvios
+@Slf4j
+@Component
+public class ReconstrucaoTopicoResumoJob {
+
+    private static final String TAREFA = "reconstrucao-topico-resumo";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TarefaCheckpoint checkpoint;
+    private final TopicoResumoProjetor projetor;
+    private final Shards shards;
+
+    private final Counter topicosProjetados;
+
+    private final int tamanhoLote;
+    private final double linhasPorSegundo;
+
+    public ReconstrucaoTopicoResumoJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                       TarefaCheckpoint checkpoint, TopicoResumoProjetor projetor,
+                                       Shards shards, MeterRegistry meterRegistry,
+                                       @Value("${alura.forum.topicos.resumo.tamanho-lote:500}") int tamanhoLote,
+                                       @Value("${alura.forum.topicos.resumo.linhas-por-segundo:2000}") double linhasPorSegundo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.checkpoint = checkpoint;
+        this.projetor = projetor;
+        this.shards = shards;
+        this.tamanhoLote = tamanhoLote;
+        this.linhasPorSegundo = linhasPorSegundo;
+        this.topicosProjetados = meterRegistry.counter("forum.manutencao.topicos.resumo.projetados");
+    }
+
+    @Scheduled(cron = "${alura.forum.topicos.resumo.cron:-}")
+    public void executar() {
+        shards.paraCada(this::executarNaShard);
+    }
+
+    private void executarNaShard(String shard) {
+        var throttle = new Throttle(linhasPorSegundo);
+        long ultimoId = checkpoint.carregar(TAREFA);
+        long total = 0;
+
+        log.info("Reconstrução de topico_resumo iniciada na shard {} a partir do id {}", shard, ultimoId);
+
+        try {
+            while (true) {
+                var lote = jdbcTemplate.queryForList("select id from topicos where id > ? order by id limit ?",
+                        Long.class, ultimoId, tamanhoLote);
+                if (lote.isEmpty()) {
+                    removerOrfaos(ultimoId, Long.MAX_VALUE);
+                    checkpoint.salvar(TAREFA, 0);
+                    break;
+                }
+
+                long aPartirDe = ultimoId;
+                ultimoId = lote.get(lote.size() - 1).longValue();
+                projetar(lote, aPartirDe, ultimoId);
+
+                checkpoint.salvar(TAREFA, ultimoId);
+                total += lote.size();
+                topicosProjetados.increment(lote.size());
+
+                throttle.aguardar(lote.size());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Reconstrução de topico_resumo finalizada na shard {}: {} tópicos projetados", shard, total);
+    }
+
+    private void projetar(List<Long> lote, long aPartirDe, long ate) {
+        transactionTemplate.executeWithoutResult(status -> {
+            projetor.projetar(lote);
+            projetor.removerOrfaos(aPartirDe, ate);
+        });
+    }
+
+    private void removerOrfaos(long aPartirDe, long ate) {
+        transactionTemplate.executeWithoutResult(status -> projetor.removerOrfaos(aPartirDe, ate));
+    }
+}
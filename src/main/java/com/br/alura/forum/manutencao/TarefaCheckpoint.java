@@ -0,0 +1,27 @@
+package br.com.alura.forum.manutencao;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TarefaCheckpoint {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long carregar(String tarefa) {
+        return jdbcTemplate.query("select ultimo_id from tarefas_checkpoint where nome = ?",
+                        (rs, rowNum) -> rs.getLong(1), tarefa)
+                .stream()
+                .findFirst()
+                .orElse(0L);
+    }
+
+    public void salvar(String tarefa, long ultimoId) {
+        jdbcTemplate.update("""
+                insert into tarefas_checkpoint(nome, ultimo_id, atualizado_em) values (?, ?, now())
+                on duplicate key update ultimo_id = values(ultimo_id), atualizado_em = values(atualizado_em)""",
+                tarefa, ultimoId);
+    }
+}
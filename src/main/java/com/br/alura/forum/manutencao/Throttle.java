@@ -0,0 +1,24 @@
+package br.com.alura.forum.manutencao;
+
+import java.util.concurrent.TimeUnit;
+
+class Throttle {
+
+    private final double linhasPorSegundo;
+    private long inicioLote = System.nanoTime();
+
+    Throttle(double linhasPorSegundo) {
+        this.linhasPorSegundo = linhasPorSegundo;
+    }
+
+    void aguardar(int linhasProcessadas) throws InterruptedException {
+        long esperadoNanos = (long) (linhasProcessadas / linhasPorSegundo * TimeUnit.SECONDS.toNanos(1));
+        long decorridoNanos = System.nanoTime() - inicioLote;
+
+        if (esperadoNanos > decorridoNanos) {
+            TimeUnit.NANOSECONDS.sleep(esperadoNanos - decorridoNanos);
+        }
+
+        inicioLote = System.nanoTime();
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.alura.forum.mensagem;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MensagemCompactada {
+
+    // mesmo tamanho das colunas mensagem de topicos e respostas, que ficam só com o começo do texto
+    public static final int TAMANHO_RESUMO = 100;
+
+    private static final int LIMITE_COMPRESSAO = 512;
+
+    @Column(columnDefinition = "mediumblob")
+    private byte[] conteudo;
+
+    private boolean comprimida;
+
+    public static MensagemCompactada de(String texto) {
+        var bytes = texto.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > LIMITE_COMPRESSAO) {
+            var comprimidos = comprimir(bytes);
+            if (comprimidos.length < bytes.length) {
+                return new MensagemCompactada(comprimidos, true);
+            }
+        }
+
+        return new MensagemCompactada(bytes, false);
+    }
+
+    public String texto() {
+        var bytes = comprimida ? descomprimir(conteudo) : conteudo;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // corta antes de um par substituto em vez de no meio dele, que viraria um caractere inválido no banco
+    public static String resumo(String texto, int tamanho) {
+        if (texto.length() <= tamanho) {
+            return texto;
+        }
+        int fim = tamanho - 3;
+        if (Character.isHighSurrogate(texto.charAt(fim - 1))) {
+            fim--;
+        }
+        return texto.substring(0, fim) + "...";
+    }
+
+    private static byte[] comprimir(byte[] bytes) {
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            var saida = new ByteArrayOutputStream(bytes.length / 2);
+            var buffer = new byte[4096];
+            while (!deflater.finished()) {
+                saida.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return saida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] descomprimir(byte[] bytes) {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+
+            var saida = new ByteArrayOutputStream(bytes.length * 3);
+            var buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int lidos = inflater.inflate(buffer);
+                if (lidos == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Mensagem comprimida truncada");
+                }
+                saida.write(buffer, 0, lidos);
+            }
+            return saida.toByteArray();
+        } catch (DataFormatException exception) {
+            throw new IllegalStateException("Mensagem comprimida inválida", exception);
+        } finally {
+            inflater.end();
+        }
+    }
+}
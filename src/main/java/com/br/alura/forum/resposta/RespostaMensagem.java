@@ -0,0 +1,24 @@
+package br.com.alura.forum.resposta;
+
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "respostas_mensagens")
+@EqualsAndHashCode(of = "respostaId")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RespostaMensagem {
+    @Id
+    private Long respostaId;
+
+    @Embedded
+    private MensagemCompactada mensagem;
+
+    public RespostaMensagem(Long respostaId, String texto) {
+        this(respostaId, MensagemCompactada.de(texto));
+    }
+}
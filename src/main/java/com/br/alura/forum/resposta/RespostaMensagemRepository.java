@@ -0,0 +1,6 @@
+package br.com.alura.forum.resposta;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RespostaMensagemRepository extends JpaRepository<RespostaMensagem, Long> {
+}
@@ -1,10 +1,12 @@
 package br.com.alura.forum.topico;
 
 import br.com.alura.forum.curso.Curso;
+import br.com.alura.forum.mensagem.MensagemCompactada;
 import br.com.alura.forum.resposta.Resposta;
 import br.com.alura.forum.usuario.Usuario;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Where;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -12,12 +14,14 @@ import java.util.List;
 
 @Entity
 @Table(name = "topicos")
+@Where(clause = "excluido_em is null")
 @EqualsAndHashCode(of = "id")
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class Topico {
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -30,6 +34,10 @@ public class Topico {
 
     @Enumerated(EnumType.STRING)
     private StatusTopico statusTopico = StatusTopico.NAO_RESPONDIDO;
+
+    private Long visualizacoes = 0L;
+
+    private LocalDateTime excluidoEm;
     @ManyToOne
     @JoinColumn(name = "usuario_id")
     private Usuario autor;
@@ -41,12 +49,12 @@ public class Topico {
 
     public Topico(TopicoRequest topicoRequest) {
         this.titulo = topicoRequest.titulo();
-        this.mensagem = topicoRequest.mensagem();
+        this.mensagem = MensagemCompactada.resumo(topicoRequest.mensagem(), MensagemCompactada.TAMANHO_RESUMO);
     }
 
     public void alterar(AlteredTopic alteredTopic){
         if(alteredTopic.mensagem() != null && !alteredTopic.mensagem().trim().equals(""))
-            this.mensagem = alteredTopic.mensagem();
+            this.mensagem = MensagemCompactada.resumo(alteredTopic.mensagem(), MensagemCompactada.TAMANHO_RESUMO);
         if(alteredTopic.titulo() != null && !alteredTopic.titulo().trim().equals(""))
             this.titulo = alteredTopic.titulo();
     }
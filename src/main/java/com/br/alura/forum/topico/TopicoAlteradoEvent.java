@@ -0,0 +1,16 @@
+package br.com.alura.forum.topico;
+
+public record TopicoAlteradoEvent(TopicoIndexado anterior, TopicoIndexado atual) {
+
+    public static TopicoAlteradoEvent criado(Topico topico) {
+        return new TopicoAlteradoEvent(null, new TopicoIndexado(topico));
+    }
+
+    public static TopicoAlteradoEvent removido(TopicoIndexado anterior) {
+        return new TopicoAlteradoEvent(anterior, null);
+    }
+
+    public Long id() {
+        return atual != null ? atual.id() : anterior.id();
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.alura.forum.topico;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record TopicoCompletoResponse(DadosTopico topico, DadosAutor autor, DadosCurso curso,
+                                     List<DadosResposta> respostas, Long totalRespostas, List<String> indisponiveis) {
+
+    public record DadosTopico(Long id, String titulo, String mensagem, LocalDateTime dataCriacao, String status,
+                              Long visualizacoes) {
+    }
+
+    public record DadosAutor(Long id, String nome) {
+    }
+
+    public record DadosCurso(Long id, String nome, String categoria) {
+    }
+
+    public record DadosResposta(Long id, String mensagem, LocalDateTime dataCriacao, String autor, Boolean solucao) {
+    }
+}
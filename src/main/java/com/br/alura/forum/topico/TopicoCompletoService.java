@@ -0,0 +1,247 @@
+package br.com.alura.forum.topico;
+
+import br.com.alura.forum.exceptionhandler.EntityNotFound;
+import br.com.alura.forum.resposta.RespostaMensagem;
+import br.com.alura.forum.resposta.RespostaMensagemRepository;
+import br.com.alura.forum.topico.TopicoCompletoResponse.DadosAutor;
+import br.com.alura.forum.topico.TopicoCompletoResponse.DadosCurso;
+import br.com.alura.forum.topico.TopicoCompletoResponse.DadosResposta;
+import br.com.alura.forum.topico.TopicoCompletoResponse.DadosTopico;
+import com.filiperobot.aluraforumapi.infra.datasource.LeituraPropria;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class TopicoCompletoService {
+
+    private static final int TAMANHO_PRIMEIRA_PAGINA = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leitura;
+    private final TopicoMensagemRepository topicoMensagemRepository;
+    private final RespostaMensagemRepository respostaMensagemRepository;
+    private final TopicoVisualizacoes topicoVisualizacoes;
+    private final Shards shards;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    public TopicoCompletoService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 TopicoMensagemRepository topicoMensagemRepository,
+                                 RespostaMensagemRepository respostaMensagemRepository,
+                                 TopicoVisualizacoes topicoVisualizacoes, Shards shards,
+                                 @Value("${alura.forum.topicos.completo.threads:16}") int threads,
+                                 @Value("${alura.forum.topicos.completo.fila:64}") int fila,
+                                 @Value("${alura.forum.topicos.completo.timeout:500ms}") Duration timeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.topicoMensagemRepository = topicoMensagemRepository;
+        this.respostaMensagemRepository = respostaMensagemRepository;
+        this.topicoVisualizacoes = topicoVisualizacoes;
+        this.shards = shards;
+        this.timeout = timeout;
+
+        // sem timeout de transação: ele vira query timeout do JDBC, que é em segundos e ficaria acima do ramo
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+
+        // cada ramo ocupa uma conexão, então o pool de threads também limita o uso do pool do banco
+        var contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(fila),
+                tarefa -> {
+                    var thread = new Thread(tarefa, "topico-completo-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public TopicoCompletoResponse getTopicoCompleto(Long id) {
+        var shard = shards.doTopico(id);
+        var topico = ramo(shard, () -> buscarTopico(id));
+        var autor = ramo(shard, () -> buscarAutor(id));
+        var curso = ramo(shard, () -> buscarCurso(id));
+        var respostas = ramo(shard, () -> buscarRespostas(id));
+        var totalRespostas = ramo(shard, () -> contarRespostas(id));
+
+        var dadosTopico = aguardar(topico, id, "topico")
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Tópico indisponível, tente novamente"))
+                .orElseThrow(() -> new EntityNotFound("Tópico não encontrado!"));
+
+        topicoVisualizacoes.registrar(id);
+
+        var indisponiveis = new ArrayList<String>();
+        var resposta = new TopicoCompletoResponse(
+                new DadosTopico(dadosTopico.id(), dadosTopico.titulo(), dadosTopico.mensagem(),
+                        dadosTopico.dataCriacao(), dadosTopico.status(),
+                        dadosTopico.visualizacoes() + topicoVisualizacoes.pendentes(id)),
+                parcial(autor, id, "autor", indisponiveis).flatMap(dados -> dados).orElse(null),
+                parcial(curso, id, "curso", indisponiveis).flatMap(dados -> dados).orElse(null),
+                parcial(respostas, id, "respostas", indisponiveis).orElse(List.of()),
+                parcial(totalRespostas, id, "totalRespostas", indisponiveis).orElse(null),
+                List.copyOf(indisponiveis));
+
+        if (!indisponiveis.isEmpty()) {
+            log.debug("Tópico {} respondido parcialmente, indisponíveis: {}", id, indisponiveis);
+        }
+
+        return resposta;
+    }
+
+    @PreDestroy
+    public void aoEncerrar() {
+        executor.shutdownNow();
+    }
+
+    // no timeout a tarefa é cancelada, saindo da fila ou sendo interrompida, em vez de seguir ocupando a thread
+    private <T> CompletableFuture<T> ramo(String shard, Supplier<T> consulta) {
+        long prazo = System.nanoTime() + timeout.toNanos();
+        var resultado = new CompletableFuture<T>();
+        Future<?> tarefa;
+        try {
+            var execucao = LeituraPropria.comContextoAtual(
+                    () -> shards.naShard(shard, () -> leitura.execute(status -> comPrazo(prazo, consulta))));
+            tarefa = executor.submit(() -> {
+                try {
+                    resultado.complete(execucao.get());
+                } catch (Throwable exception) {
+                    resultado.completeExceptionally(exception);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+
+        resultado.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((valor, exception) -> {
+                    if (exception != null) {
+                        tarefa.cancel(true);
+                    }
+                });
+        return resultado;
+    }
+
+    // a interrupção não para uma consulta já enviada ao banco, então os selects do ramo levam o tempo que resta
+    // como max_execution_time do MySQL, em milissegundos; a variável volta ao padrão antes da conexão voltar ao pool
+    private <T> T comPrazo(long prazo, Supplier<T> consulta) {
+        long restante = TimeUnit.NANOSECONDS.toMillis(prazo - System.nanoTime());
+        if (restante <= 0) {
+            throw new QueryTimeoutException("Prazo do ramo esgotado antes da consulta");
+        }
+
+        jdbcTemplate.execute("set session max_execution_time = " + restante);
+        try {
+            return consulta.get();
+        } finally {
+            jdbcTemplate.execute("set session max_execution_time = default");
+        }
+    }
+
+    // os ramos já correm em paralelo, então a espera total fica limitada pelo timeout do ramo mais lento
+    // timeouts e fila cheia são esperados sob carga e saem sem a pilha; qualquer outra falha leva a pilha junto
+    private <T> Optional<T> aguardar(CompletableFuture<T> ramo, Long id, String nome) {
+        try {
+            return Optional.ofNullable(ramo.join());
+        } catch (CompletionException | CancellationException exception) {
+            var causa = exception instanceof CompletionException && exception.getCause() != null
+                    ? exception.getCause() : exception;
+            if (causa instanceof TimeoutException || causa instanceof QueryTimeoutException
+                    || causa instanceof RejectedExecutionException) {
+                log.warn("Ramo {} do tópico {} indisponível: {}", nome, id, causa.toString());
+            } else {
+                log.warn("Ramo {} do tópico {} falhou", nome, id, causa);
+            }
+            return Optional.empty();
+        }
+    }
+
+    private <T> Optional<T> parcial(CompletableFuture<T> ramo, Long id, String nome, List<String> indisponiveis) {
+        var resultado = aguardar(ramo, id, nome);
+        if (resultado.isEmpty()) {
+            indisponiveis.add(nome);
+        }
+        return resultado;
+    }
+
+    private Optional<DadosTopico> buscarTopico(Long id) {
+        var topico = jdbcTemplate.query("""
+                        select id, titulo, mensagem, data_criacao, status_topico, visualizacoes from topicos
+                        where id = ? and excluido_em is null""",
+                (rs, rowNum) -> new DadosTopico(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getTimestamp(4).toLocalDateTime(), rs.getString(5), rs.getLong(6)),
+                id).stream().findFirst();
+
+        return topico.map(dados -> topicoMensagemRepository.findById(id)
+                .map(topicoMensagem -> new DadosTopico(dados.id(), dados.titulo(),
+                        topicoMensagem.getMensagem().texto(), dados.dataCriacao(), dados.status(),
+                        dados.visualizacoes()))
+                .orElse(dados));
+    }
+
+    private Optional<DadosAutor> buscarAutor(Long topicoId) {
+        return jdbcTemplate.query("""
+                        select u.id, u.nome from topicos t join usuarios u on u.id = t.usuario_id
+                        where t.id = ?""",
+                (rs, rowNum) -> new DadosAutor(rs.getLong(1), rs.getString(2)),
+                topicoId).stream().findFirst();
+    }
+
+    private Optional<DadosCurso> buscarCurso(Long topicoId) {
+        return jdbcTemplate.query("""
+                        select c.id, c.nome, c.categoria from topicos t join cursos c on c.id = t.curso_id
+                        where t.id = ?""",
+                (rs, rowNum) -> new DadosCurso(rs.getLong(1), rs.getString(2), rs.getString(3)),
+                topicoId).stream().findFirst();
+    }
+
+    // a listagem lê só o resumo da coluna; o texto completo das respostas da página vem numa consulta por chave
+    private List<DadosResposta> buscarRespostas(Long topicoId) {
+        var respostas = jdbcTemplate.query("""
+                        select r.id, r.mensagem, r.data_criacao, u.nome, r.solucao from respostas r
+                        join usuarios u on u.id = r.usuario_id
+                        where r.topico_id = ?
+                        order by r.data_criacao, r.id limit ?""",
+                (rs, rowNum) -> new DadosResposta(rs.getLong(1), rs.getString(2),
+                        rs.getTimestamp(3).toLocalDateTime(), rs.getString(4), rs.getBoolean(5)),
+                topicoId, TAMANHO_PRIMEIRA_PAGINA);
+
+        if (respostas.isEmpty()) {
+            return respostas;
+        }
+
+        var mensagens = respostaMensagemRepository.findAllById(respostas.stream().map(DadosResposta::id).toList())
+                .stream()
+                .collect(Collectors.toMap(RespostaMensagem::getRespostaId, mensagem -> mensagem.getMensagem().texto()));
+
+        return respostas.stream()
+                .map(resposta -> mensagens.containsKey(resposta.id())
+                        ? new DadosResposta(resposta.id(), mensagens.get(resposta.id()), resposta.dataCriacao(),
+                        resposta.autor(), resposta.solucao())
+                        : resposta)
+                .toList();
+    }
+
+    private Long contarRespostas(Long topicoId) {
+        return jdbcTemplate.queryForObject("select count(*) from respostas where topico_id = ?", Long.class, topicoId);
+    }
+}
@@ -1,14 +1,17 @@
 package br.com.alura.forum.topico;
 
+import com.filiperobot.aluraforumapi.infra.consultas.OrcamentoConsultas;
+import com.filiperobot.aluraforumapi.infra.paginacao.Pagina;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/topicos")
 @RequiredArgsConstructor
@@ -16,21 +19,54 @@ import org.springframework.web.bind.annotation.*;
 public class TopicoController {
 
     private final TopicoService topicoService;
+
+    private final TopicoFacetIndex topicoFacetIndex;
+
+    private final TopicoCompletoService topicoCompletoService;
     @PostMapping
     public ResponseEntity<TopicoResponse> saveTopico(@Valid @RequestBody TopicoRequest topicoRequest) {
         return new ResponseEntity<>(topicoService.saveTopico(topicoRequest),HttpStatus.CREATED);
     }
 
+    @OrcamentoConsultas(3)
     @GetMapping
-    public ResponseEntity<Page<TopicoResponse>> getTopicos(Pageable pageable) {
-        return ResponseEntity.ok(topicoService.getTopicos(pageable));
+    public ResponseEntity<Pagina<TopicoResponseJson>> getTopicos(TopicoFiltro filtro, Pageable pageable) {
+        return ResponseEntity.ok(Pagina.de(topicoService.getTopicos(filtro, pageable)));
+    }
+
+    @GetMapping("/em-alta")
+    public ResponseEntity<List<TopicoResponseJson>> getTopicosEmAlta(@RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(topicoService.getTopicosEmAlta(Math.min(limite, 100)));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<TopicoFacetasResponse> getFacetas(
+            @RequestParam(required = false) List<StatusTopico> statusTopico,
+            @RequestParam(required = false) List<Long> curso,
+            @RequestParam(required = false) List<Long> autor) {
+        return ResponseEntity.ok(topicoFacetIndex.facetas(statusTopico, curso, autor));
+    }
+
+    @GetMapping("/facets/ids")
+    public ResponseEntity<List<Long>> getIdsFiltrados(
+            @RequestParam(required = false) List<StatusTopico> statusTopico,
+            @RequestParam(required = false) List<Long> curso,
+            @RequestParam(required = false) List<Long> autor,
+            @RequestParam(defaultValue = "0") long aPartirDe,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(topicoFacetIndex.ids(statusTopico, curso, autor, aPartirDe, Math.min(limite, 1000)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TopicoResponse> getTopicoById(@PathVariable Long id){
+    public ResponseEntity<TopicoDetalheResponse> getTopicoById(@PathVariable Long id){
         return ResponseEntity.ok(topicoService.getTopicoById(id));
     }
 
+    @GetMapping("/{id}/completo")
+    public ResponseEntity<TopicoCompletoResponse> getTopicoCompleto(@PathVariable Long id){
+        return ResponseEntity.ok(topicoCompletoService.getTopicoCompleto(id));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<TopicoResponse> updateTopicoById(@PathVariable Long id, @RequestBody AlteredTopic alteredTopic){
         return ResponseEntity.ok(topicoService.updateTopicoById(id,alteredTopic));
@@ -39,6 +75,6 @@ public class TopicoController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteById(@PathVariable Long id){
         topicoService.deleteById(id);
-        return ResponseEntity.noContent().build();
+        return ResponseEntity.accepted().build();
     }
 }
@@ -0,0 +1,14 @@
+package br.com.alura.forum.topico;
+
+public record TopicoDetalheResponse(Long id, String titulo, String mensagem, String status, String autor, String curso,
+                                    Long visualizacoes) {
+
+    public TopicoDetalheResponse(Topico topico, String mensagem, long visualizacoesPendentes) {
+        this(topico.getId(), topico.getTitulo(), mensagem, topico.getStatusTopico().toString(), topico.getAutor().getNome(),
+                topico.getCurso().getNome(), topico.getVisualizacoes() + visualizacoesPendentes);
+    }
+
+    public TopicoDetalheResponse comVisualizacoesPendentes(long visualizacoesPendentes) {
+        return new TopicoDetalheResponse(id, titulo, mensagem, status, autor, curso, visualizacoes + visualizacoesPendentes);
+    }
+}
@@ -0,0 +1,218 @@
+package br.com.alura.forum.topico;
+
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopicoFacetIndex {
+
+    private final TopicoRepository topicoRepository;
+
+    private final Shards shards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final RoaringBitmap todos = new RoaringBitmap();
+    private final Map<StatusTopico, RoaringBitmap> porStatus = new EnumMap<>(StatusTopico.class);
+    private final Map<Long, RoaringBitmap> porCurso = new HashMap<>();
+    private final Map<Long, RoaringBitmap> porAutor = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            todos.clear();
+            porStatus.clear();
+            porCurso.clear();
+            porAutor.clear();
+
+            shards.paraCada(shard -> transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TopicoIndexado> topicos = topicoRepository.streamIndexados()) {
+                    topicos.forEach(this::adicionar);
+                }
+            }));
+
+            todos.runOptimize();
+            porStatus.values().forEach(RoaringBitmap::runOptimize);
+            porCurso.values().forEach(RoaringBitmap::runOptimize);
+            porAutor.values().forEach(RoaringBitmap::runOptimize);
+
+            log.info("Índice de facetas de tópicos reconstruído: {} tópicos, {} bytes",
+                    todos.getCardinality(), bytesEmMemoria());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarTopico(TopicoAlteradoEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.anterior() != null) {
+                remover(event.anterior());
+            }
+            if (event.atual() != null) {
+                adicionar(event.atual());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // recarrega o estado atual do tópico, sem depender da ordem em que as alterações chegam de outros nós
+    public void recarregar(Long id) {
+        var atual = shards.naShard(shards.doTopico(id), () -> topicoRepository.findIndexadoById(id));
+
+        lock.writeLock().lock();
+        try {
+            int chave = paraInt(id);
+            todos.remove(chave);
+            removerDeTodos(porStatus, chave);
+            removerDeTodos(porCurso, chave);
+            removerDeTodos(porAutor, chave);
+            atual.ifPresent(this::adicionar);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public TopicoFacetasResponse facetas(Collection<StatusTopico> status, Collection<Long> cursos, Collection<Long> autores) {
+        lock.readLock().lock();
+        try {
+            var filtro = filtrar(status, cursos, autores);
+
+            return new TopicoFacetasResponse(
+                    filtro.getCardinality(),
+                    contar(porStatus, filtro, () -> new EnumMap<>(StatusTopico.class)),
+                    contar(porCurso, filtro, HashMap::new),
+                    contar(porAutor, filtro, HashMap::new),
+                    bytesEmMemoria()
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> ids(Collection<StatusTopico> status, Collection<Long> cursos, Collection<Long> autores,
+                          long aPartirDe, int limite) {
+        lock.readLock().lock();
+        try {
+            var ids = new ArrayList<Long>(limite);
+            var iterator = filtrar(status, cursos, autores).getIntIterator();
+            iterator.advanceIfNeeded(paraInt(aPartirDe + 1));
+
+            while (iterator.hasNext() && ids.size() < limite) {
+                ids.add(Integer.toUnsignedLong(iterator.next()));
+            }
+
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long bytesEmMemoria() {
+        long bytes = todos.getLongSizeInBytes();
+        for (var bitmap : porStatus.values()) bytes += bitmap.getLongSizeInBytes();
+        for (var bitmap : porCurso.values()) bytes += bitmap.getLongSizeInBytes();
+        for (var bitmap : porAutor.values()) bytes += bitmap.getLongSizeInBytes();
+        return bytes;
+    }
+
+    private RoaringBitmap filtrar(Collection<StatusTopico> status, Collection<Long> cursos, Collection<Long> autores) {
+        var resultado = todos.clone();
+
+        if (status != null && !status.isEmpty()) {
+            resultado.and(uniao(porStatus, status));
+        }
+        if (cursos != null && !cursos.isEmpty()) {
+            resultado.and(uniao(porCurso, cursos));
+        }
+        if (autores != null && !autores.isEmpty()) {
+            resultado.and(uniao(porAutor, autores));
+        }
+
+        return resultado;
+    }
+
+    private static <K> RoaringBitmap uniao(Map<K, RoaringBitmap> bitmaps, Collection<K> chaves) {
+        return RoaringBitmap.or(chaves.stream()
+                .map(bitmaps::get)
+                .filter(Objects::nonNull)
+                .iterator());
+    }
+
+    private static <K> Map<K, Integer> contar(Map<K, RoaringBitmap> bitmaps, RoaringBitmap filtro,
+                                              Supplier<Map<K, Integer>> mapa) {
+        var contagem = mapa.get();
+
+        bitmaps.forEach((chave, bitmap) -> {
+            int quantidade = RoaringBitmap.andCardinality(bitmap, filtro);
+            if (quantidade > 0) {
+                contagem.put(chave, quantidade);
+            }
+        });
+
+        return contagem;
+    }
+
+    private void adicionar(TopicoIndexado topico) {
+        int id = paraInt(topico.id());
+
+        todos.add(id);
+        porStatus.computeIfAbsent(topico.statusTopico(), s -> new RoaringBitmap()).add(id);
+        porCurso.computeIfAbsent(topico.cursoId(), c -> new RoaringBitmap()).add(id);
+        porAutor.computeIfAbsent(topico.autorId(), a -> new RoaringBitmap()).add(id);
+    }
+
+    private void remover(TopicoIndexado topico) {
+        int id = paraInt(topico.id());
+
+        todos.remove(id);
+        removerDe(porStatus, topico.statusTopico(), id);
+        removerDe(porCurso, topico.cursoId(), id);
+        removerDe(porAutor, topico.autorId(), id);
+    }
+
+    // o bitmap trata o int como sem sinal, o que comporta os ids de tópico com a shard nos bits altos
+    private static int paraInt(long id) {
+        if (id >>> Integer.SIZE != 0) {
+            throw new ArithmeticException("Id de tópico fora da faixa do índice: " + id);
+        }
+        return (int) id;
+    }
+
+    private static void removerDeTodos(Map<?, RoaringBitmap> bitmaps, int id) {
+        bitmaps.values().removeIf(bitmap -> {
+            bitmap.remove(id);
+            return bitmap.isEmpty();
+        });
+    }
+
+    private static <K> void removerDe(Map<K, RoaringBitmap> bitmaps, K chave, int id) {
+        var bitmap = bitmaps.get(chave);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(chave);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.alura.forum.topico;
+
+import java.util.Map;
+
+public record TopicoFacetasResponse(
+        int total,
+        Map<StatusTopico, Integer> porStatus,
+        Map<Long, Integer> porCurso,
+        Map<Long, Integer> porAutor,
+        long bytesEmMemoria) {
+}
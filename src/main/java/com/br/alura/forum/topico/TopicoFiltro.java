@@ -0,0 +1,16 @@
+package br.com.alura.forum.topico;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// desde é inclusivo e ate é exclusivo: desde=2024-01-01T00:00&ate=2024-02-01T00:00 cobre janeiro inteiro
+public record TopicoFiltro(
+        Long curso,
+        StatusTopico statusTopico,
+        Long autor,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime desde,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime ate) {
+}
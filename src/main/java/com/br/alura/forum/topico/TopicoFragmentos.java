@@ -0,0 +1,93 @@
+package br.com.alura.forum.topico;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.filiperobot.aluraforumapi.infra.cache.FragmentoCache;
+import com.filiperobot.aluraforumapi.infra.datasource.ReplicaMonitor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+@Component
+public class TopicoFragmentos {
+
+    private static final byte[] CAMPO_VISUALIZACOES = ",\"visualizacoes\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+
+    private final FragmentoCache<Long> cache;
+
+    // as listagens podem ler da réplica: um tópico invalidado há menos que o atraso tolerado dela não é guardado,
+    // já que o fragmento pode ter sido montado antes de a réplica aplicar a escrita. O atraso é medido em segundos
+    // inteiros e só a cada verificação, daí a margem
+    public TopicoFragmentos(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            ObjectProvider<ReplicaMonitor> replicaMonitor,
+                            @Value("${alura.forum.topicos.fragmentos.maximo:20000}") int maximo,
+                            @Value("${alura.forum.datasource.replica.verificacao-ms:1000}") long verificacaoReplica) {
+        this.objectMapper = objectMapper;
+        var monitor = replicaMonitor.getIfAvailable();
+        var atrasoLeitura = monitor != null
+                ? monitor.atrasoMaximo().plusSeconds(1).plusMillis(verificacaoReplica)
+                : Duration.ZERO;
+        this.cache = new FragmentoCache<>(maximo, atrasoLeitura);
+        FunctionCounter.builder("forum.cache.fragmentos", cache, FragmentoCache::acertos)
+                .tag("resultado", "acerto")
+                .register(meterRegistry);
+        FunctionCounter.builder("forum.cache.fragmentos", cache, FragmentoCache::falhas)
+                .tag("resultado", "falha")
+                .register(meterRegistry);
+        meterRegistry.gauge("forum.cache.fragmentos.entradas", cache, FragmentoCache::tamanho);
+    }
+
+    public long marca() {
+        return cache.marca();
+    }
+
+    public TopicoResponseJson json(Topico topico, long marca) {
+        return new TopicoResponseJson(cache.obter(topico.getId(), topico, marca, this::serializar), topico);
+    }
+
+    public void invalidar(Long id) {
+        cache.invalidar(id);
+    }
+
+    public void invalidarTudo() {
+        cache.invalidarTudo();
+    }
+
+    // só depois do commit: invalidar antes deixaria uma leitura concorrente guardar a versão antiga
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarTopico(TopicoAlteradoEvent event) {
+        cache.invalidar(event.id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarNomes(TopicoNomesAlteradosEvent event) {
+        cache.invalidarTudo();
+    }
+
+    // serializa sem as visualizações e troca o '}' final pelo início do campo, que é escrito a cada resposta
+    private byte[] serializar(Topico topico) {
+        try {
+            var json = objectMapper.writeValueAsBytes(new Campos(topico.getId(), topico.getTitulo(),
+                    topico.getStatusTopico().toString(), topico.getAutor().getNome(), topico.getCurso().getNome()));
+            int fim = json.length - 1;
+            var prefixo = Arrays.copyOf(json, fim + CAMPO_VISUALIZACOES.length);
+            System.arraycopy(CAMPO_VISUALIZACOES, 0, prefixo, fim, CAMPO_VISUALIZACOES.length);
+            return prefixo;
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Falha ao serializar o tópico " + topico.getId(), exception);
+        }
+    }
+
+    // mesmos campos e ordem de TopicoResponse, sem as visualizações
+    private record Campos(Long id, String titulo, String status, String autor, String curso) {
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.alura.forum.topico;
+
+public record TopicoIndexado(Long id, StatusTopico statusTopico, Long cursoId, Long autorId) {
+
+    public TopicoIndexado(Topico topico) {
+        this(topico.getId(), topico.getStatusTopico(), topico.getCurso().getId(), topico.getAutor().getId());
+    }
+}
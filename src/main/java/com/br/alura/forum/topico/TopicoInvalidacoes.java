@@ -0,0 +1,48 @@
+package br.com.alura.forum.topico;
+
+import com.filiperobot.aluraforumapi.infra.invalidacao.InvalidacaoBus;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TopicoInvalidacoes {
+
+    static final String REGIAO = "topicos";
+
+    // renomear um autor ou curso muda os fragmentos de todos os tópicos dele, mas não as facetas
+    static final String REGIAO_FRAGMENTOS = "topicos-fragmentos";
+
+    private final InvalidacaoBus invalidacaoBus;
+
+    private final TopicoFacetIndex topicoFacetIndex;
+
+    private final TopicoFragmentos topicoFragmentos;
+
+    @PostConstruct
+    public void assinar() {
+        invalidacaoBus.assinar(REGIAO, chave -> {
+            if (InvalidacaoBus.TUDO.equals(chave)) {
+                topicoFragmentos.invalidarTudo();
+                topicoFacetIndex.reconstruir();
+            } else {
+                topicoFragmentos.invalidar(Long.valueOf(chave));
+                topicoFacetIndex.recarregar(Long.valueOf(chave));
+            }
+        });
+        invalidacaoBus.assinar(REGIAO_FRAGMENTOS, chave -> topicoFragmentos.invalidarTudo());
+    }
+
+    // listener síncrono: o registro entra na mesma transação da alteração do tópico
+    @EventListener
+    public void aoAlterarTopico(TopicoAlteradoEvent event) {
+        invalidacaoBus.publicar(REGIAO, event.id().toString());
+    }
+
+    @EventListener
+    public void aoAlterarNomes(TopicoNomesAlteradosEvent event) {
+        invalidacaoBus.publicar(REGIAO_FRAGMENTOS, InvalidacaoBus.TUDO);
+    }
+}
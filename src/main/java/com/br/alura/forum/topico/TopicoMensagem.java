@@ -0,0 +1,24 @@
+package br.com.alura.forum.topico;
+
+import br.com.alura.forum.mensagem.MensagemCompactada;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "topicos_mensagens")
+@EqualsAndHashCode(of = "topicoId")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopicoMensagem {
+    @Id
+    private Long topicoId;
+
+    @Embedded
+    private MensagemCompactada mensagem;
+
+    public TopicoMensagem(Long topicoId, String texto) {
+        this(topicoId, MensagemCompactada.de(texto));
+    }
+}
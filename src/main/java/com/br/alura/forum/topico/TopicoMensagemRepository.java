@@ -0,0 +1,6 @@
+package br.com.alura.forum.topico;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TopicoMensagemRepository extends JpaRepository<TopicoMensagem, Long> {
+}
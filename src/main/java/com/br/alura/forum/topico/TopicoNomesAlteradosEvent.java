@@ -0,0 +1,4 @@
+package br.com.alura.forum.topico;
+
+public record TopicoNomesAlteradosEvent() {
+}
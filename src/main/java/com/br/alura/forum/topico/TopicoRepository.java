@@ -1,7 +1,38 @@
 package br.com.alura.forum.topico;
 
 import br.com.alura.forum.topico.Topico;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface TopicoRepository extends JpaRepository<Topico,Long> {
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface TopicoRepository extends JpaRepository<Topico,Long>, JpaSpecificationExecutor<Topico> {
+
+    // autor e curso entram no mesmo select; sem o grafo cada autor e curso distinto da página virava uma consulta
+    @Override
+    @EntityGraph(attributePaths = {"autor", "curso"})
+    Page<Topico> findAll(Specification<Topico> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"autor", "curso"})
+    List<Topico> findAllById(Iterable<Long> ids);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select new br.com.alura.forum.topico.TopicoIndexado(t.id, t.statusTopico, t.curso.id, t.autor.id) from Topico t")
+    Stream<TopicoIndexado> streamIndexados();
+
+    @Query("select new br.com.alura.forum.topico.TopicoIndexado(t.id, t.statusTopico, t.curso.id, t.autor.id) from Topico t where t.id = :id")
+    Optional<TopicoIndexado> findIndexadoById(Long id);
 }
@@ -0,0 +1,34 @@
+package br.com.alura.forum.topico;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.filiperobot.aluraforumapi.infra.cache.FragmentoJson;
+
+import java.io.IOException;
+
+// mesmo JSON de TopicoResponse; as visualizações mudam a cada leitura, então ficam fora do fragmento em cache.
+// formatos binários (CBOR, Smile) não aceitam JSON cru e serializam o TopicoResponse normalmente
+public record TopicoResponseJson(FragmentoJson prefixo, Topico topico) implements JsonSerializable {
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (!(gen instanceof JsonGeneratorImpl)) {
+            serializers.defaultSerializeValue(new TopicoResponse(topico), gen);
+            return;
+        }
+
+        var visualizacoes = topico.getVisualizacoes();
+        gen.writeRawValue(prefixo);
+        gen.writeRaw(visualizacoes == null ? "null" : Long.toString(visualizacoes));
+        gen.writeRaw('}');
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+}
@@ -9,12 +9,23 @@ import br.com.alura.forum.exceptionhandler.NotAutorized;
 import br.com.alura.forum.infra.security.TokenService;
 import br.com.alura.forum.usuario.Usuario;
 import br.com.alura.forum.usuario.UsuarioRepository;
-import jakarta.transaction.Transactional;
+import com.filiperobot.aluraforumapi.domain.forum.topico.TopicoExclusaoService;
+import com.filiperobot.aluraforumapi.infra.cache.SingleFlight;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,58 +39,133 @@ public class TopicoService {
 
     private final TokenService tokenService;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TopicoVisualizacoes topicoVisualizacoes;
+
+    private final TopicoMensagemRepository topicoMensagemRepository;
+
+    private final Shards shards;
+
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    private final TopicoFragmentos topicoFragmentos;
+
+    private final TopicoExclusaoService topicoExclusaoService;
+
+    private SingleFlight<Long, TopicoDetalheResponse> topicosEmCarga;
+
+
+    @Autowired
+    void configurarCarga(@Value("${alura.forum.cache.espera:5s}") Duration espera) {
+        topicosEmCarga = new SingleFlight<>(espera);
+    }
+
+    // usuário e curso vêm da shard padrão; o tópico é gravado na shard do curso
     public TopicoResponse saveTopico(TopicoRequest topicoRequest) {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
         Usuario usuario = usuarioRepository.findByEmail(email);
         Curso curso = cursoRepository.findCursoByNome(topicoRequest.curso()).orElseThrow();
-        Topico topico = new Topico(topicoRequest);
-        topico.setCurso(curso);
-        topico.setAutor(usuario);
-        topico = topicoRepository.save(topico);
-        return new TopicoResponse(topico);
+        return shards.naShard(shards.doCurso(curso.getId()), () -> transactionTemplate.execute(status -> {
+            Topico topico = new Topico(topicoRequest);
+            topico.setCurso(curso);
+            topico.setAutor(usuario);
+            topico = topicoRepository.save(topico);
+            topicoMensagemRepository.save(new TopicoMensagem(topico.getId(), topicoRequest.mensagem()));
+            eventPublisher.publishEvent(TopicoAlteradoEvent.criado(topico));
+            return new TopicoResponse(topico);
+        }));
     }
 
-    public Page<TopicoResponse> getTopicos(Pageable pageable) {
-        return topicoRepository.findAll(pageable).map(TopicoResponse::new);
+    public Page<TopicoResponseJson> getTopicos(TopicoFiltro filtro, Pageable pageable) {
+        var especificacao = TopicoSpecifications.comFiltro(filtro);
+        long marca = topicoFragmentos.marca();
+
+        if (filtro.curso() != null || shards.unica()) {
+            var shard = filtro.curso() != null ? shards.doCurso(filtro.curso()) : shards.nomes().get(0);
+            return shards.naShard(shard, () -> topicoRepository.findAll(especificacao, pageable)
+                    .map(topico -> topicoFragmentos.json(topico, marca)));
+        }
+
+        return shards.paginar(pageable, pagina -> topicoRepository.findAll(especificacao, pagina),
+                topico -> topicoFragmentos.json(topico, marca));
     }
 
-    public TopicoResponse getTopicoById(Long id) {
-        return topicoRepository.findById(id).map(TopicoResponse::new).orElseThrow(
-                () -> new EntityNotFound("Tópico não encontrado!")
-        );
+    // leituras concorrentes do mesmo tópico dividem a consulta; a visualização continua contada por requisição
+    public TopicoDetalheResponse getTopicoById(Long id) {
+        var detalhe = topicosEmCarga.carregar(id, this::carregarTopico);
+        topicoVisualizacoes.registrar(id);
+        return detalhe.comVisualizacoesPendentes(topicoVisualizacoes.pendentes(id));
+    }
+
+    private TopicoDetalheResponse carregarTopico(Long id) {
+        return shards.naShard(shards.doTopico(id), () -> {
+            var topico = topicoRepository.findById(id).orElseThrow(
+                    () -> new EntityNotFound("Tópico não encontrado!")
+            );
+            var mensagem = topicoMensagemRepository.findById(id)
+                    .map(topicoMensagem -> topicoMensagem.getMensagem().texto())
+                    .orElse(topico.getMensagem());
+            return new TopicoDetalheResponse(topico, mensagem, 0);
+        });
+    }
+
+    public List<TopicoResponseJson> getTopicosEmAlta(int limite) {
+        var ids = topicoVisualizacoes.emAlta(limite);
+        long marca = topicoFragmentos.marca();
+        var topicos = new HashMap<Long, TopicoResponseJson>();
+        // o fragmento é montado dentro da shard, onde autor e curso ainda podem ser carregados
+        ids.stream()
+                .collect(Collectors.groupingBy(shards::doTopico))
+                .forEach((shard, idsDaShard) -> shards.naShard(shard, () -> topicoRepository.findAllById(idsDaShard)
+                        .forEach(topico -> topicos.put(topico.getId(), topicoFragmentos.json(topico, marca)))));
+        return ids.stream()
+                .map(topicos::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
 
     public TopicoResponse updateTopicoById(Long id, AlteredTopic alteredTopict) {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
         Usuario usuario = usuarioRepository.findByEmail(email);
+        Curso novoCurso = alteredTopict.curso() == null ? null : cursoRepository.findCursoByNome(alteredTopict.curso())
+                .orElseThrow(() -> new AttributeNotFound("Curso não encontrado"));
+        var shard = shards.doTopico(id);
 
-        return topicoRepository.findById(id).map(topico -> {
+        if (novoCurso != null && !shards.doCurso(novoCurso.getId()).equals(shard)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Não é possível mover o tópico para um curso de outra shard");
+        }
+
+        return shards.naShard(shard, () -> transactionTemplate.execute(status -> topicoRepository.findById(id).map(topico -> {
                     if (topico.getAutor().equals(usuario)) {
-                        if (alteredTopict.curso() != null) {
-                            Curso curso = cursoRepository.findCursoByNome(alteredTopict.curso())
-                                    .orElseThrow(() -> new AttributeNotFound("Curso não encontrado"));
-                            topico.setCurso(curso);
+                        var anterior = new TopicoIndexado(topico);
+                        if (novoCurso != null) {
+                            topico.setCurso(novoCurso);
                         }
                         topico.alterar(alteredTopict);
+                        if (alteredTopict.mensagem() != null && !alteredTopict.mensagem().trim().equals("")) {
+                            topicoMensagemRepository.save(new TopicoMensagem(id, alteredTopict.mensagem()));
+                        }
+                        eventPublisher.publishEvent(new TopicoAlteradoEvent(anterior, new TopicoIndexado(topico)));
                         return new TopicoResponse(topico);
                     }
                     throw new NotAutorized("Acesso não autorizado!");
                 }
-        ).orElseThrow(() -> new EntityNotFound("Tópico não encontrado!"));
+        ).orElseThrow(() -> new EntityNotFound("Tópico não encontrado!"))));
 
     }
 
     public void deleteById(Long id) {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
         Usuario usuario = usuarioRepository.findByEmail(email);
-        Topico topico = topicoRepository.findById(id).orElseThrow(() -> new EntityNotFound("Tópico não encontrado!"));
-        if (topico.getAutor() == usuario) {
-            topicoRepository.deleteById(id);
-        } else
-            throw new NotAutorized("Acesso não autorizado!");
+        shards.naShard(shards.doTopico(id), () -> transactionTemplate.executeWithoutResult(status -> {
+            Topico topico = topicoRepository.findById(id).orElseThrow(() -> new EntityNotFound("Tópico não encontrado!"));
+            if (topico.getAutor().equals(usuario)) {
+                topicoExclusaoService.marcarExcluido(id);
+            } else
+                throw new NotAutorized("Acesso não autorizado!");
+        }));
 
     }
 }
@@ -0,0 +1,36 @@
+package br.com.alura.forum.topico;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+
+public final class TopicoSpecifications {
+
+    private TopicoSpecifications() {
+    }
+
+    public static Specification<Topico> comFiltro(TopicoFiltro filtro) {
+        return (root, query, cb) -> {
+            var predicados = new ArrayList<Predicate>();
+
+            if (filtro.curso() != null) {
+                predicados.add(cb.equal(root.get("curso").get("id"), filtro.curso()));
+            }
+            if (filtro.statusTopico() != null) {
+                predicados.add(cb.equal(root.get("statusTopico"), filtro.statusTopico()));
+            }
+            if (filtro.autor() != null) {
+                predicados.add(cb.equal(root.get("autor").get("id"), filtro.autor()));
+            }
+            if (filtro.desde() != null) {
+                predicados.add(cb.greaterThanOrEqualTo(root.get("dataCriacao"), filtro.desde()));
+            }
+            if (filtro.ate() != null) {
+                predicados.add(cb.lessThan(root.get("dataCriacao"), filtro.ate()));
+            }
+
+            return cb.and(predicados.toArray(Predicate[]::new));
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package br.com.alura.forum.topico;
+
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopicoVisualizacoes {
+
+    private static final int TAMANHO_LOTE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Shards shards;
+
+    private final ConcurrentHashMap<Long, LongAdder> pendentes = new ConcurrentHashMap<>();
+
+    private final Map<Long, Double> pontuacaoEmAlta = new HashMap<>();
+
+    private final ReentrantLock descarga = new ReentrantLock();
+
+    private volatile List<Long> rankingEmAlta = List.of();
+
+    @Value("${alura.forum.topicos.visualizacoes.decaimento:0.9}")
+    private double decaimento;
+
+    public void registrar(Long topicoId) {
+        acumular(topicoId, 1);
+    }
+
+    // sem trava no caminho quente: depois da primeira visualização do tópico é só um get e um add no adder
+    private void acumular(Long topicoId, long delta) {
+        var adder = pendentes.get(topicoId);
+        if (adder == null) {
+            adder = pendentes.computeIfAbsent(topicoId, id -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    public long pendentes(Long topicoId) {
+        var adder = pendentes.get(topicoId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public List<Long> emAlta(int limite) {
+        var ranking = rankingEmAlta;
+        return ranking.subList(0, Math.min(limite, ranking.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${alura.forum.topicos.visualizacoes.intervalo-ms:5000}")
+    public void descarregar() {
+        descarga.lock();
+        try {
+            descarregarPendentes();
+        } finally {
+            descarga.unlock();
+        }
+    }
+
+    private void descarregarPendentes() {
+        var deltas = new HashMap<Long, Long>();
+
+        // os adders nunca saem do mapa, então um incremento concorrente com a descarga cai no mesmo adder e entra
+        // nesta descarga ou na próxima; o mapa fica com uma entrada por tópico visualizado
+        pendentes.forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                deltas.put(id, delta);
+            }
+        });
+
+        atualizarEmAlta(deltas);
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        deltas.entrySet().stream()
+                .collect(Collectors.groupingBy(delta -> shards.doTopico(delta.getKey())))
+                .forEach((shard, deltasDaShard) -> shards.naShard(shard, () -> gravarEmLotes(deltasDaShard)));
+
+        log.debug("Visualizações descarregadas para {} tópicos", deltas.size());
+    }
+
+    private void gravarEmLotes(List<Map.Entry<Long, Long>> deltas) {
+        for (int inicio = 0; inicio < deltas.size(); inicio += TAMANHO_LOTE) {
+            gravar(deltas.subList(inicio, Math.min(inicio + TAMANHO_LOTE, deltas.size())));
+        }
+    }
+
+    @PreDestroy
+    public void aoEncerrar() {
+        descarregar();
+    }
+
+    private void gravar(List<Map.Entry<Long, Long>> lote) {
+        var sql = new StringBuilder("update topicos set visualizacoes = visualizacoes + case id");
+        var parametros = new ArrayList<Object>(lote.size() * 3);
+
+        for (var delta : lote) {
+            sql.append(" when ? then ?");
+            parametros.add(delta.getKey());
+            parametros.add(delta.getValue());
+        }
+
+        sql.append(" else 0 end where id in (");
+        for (int i = 0; i < lote.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            parametros.add(lote.get(i).getKey());
+        }
+        sql.append(")");
+
+        try {
+            jdbcTemplate.update(sql.toString(), parametros.toArray());
+        } catch (RuntimeException exception) {
+            log.warn("Falha ao gravar visualizações, reagendando {} tópicos", lote.size(), exception);
+            lote.forEach(delta -> acumular(delta.getKey(), delta.getValue()));
+        }
+    }
+
+    private void atualizarEmAlta(Map<Long, Long> deltas) {
+        pontuacaoEmAlta.replaceAll((id, pontuacao) -> pontuacao * decaimento);
+        deltas.forEach((id, delta) -> pontuacaoEmAlta.merge(id, delta.doubleValue(), Double::sum));
+        pontuacaoEmAlta.values().removeIf(pontuacao -> pontuacao < 0.5);
+
+        rankingEmAlta = pontuacaoEmAlta.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(100)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.alura.forum.usuario;
 
+import com.filiperobot.aluraforumapi.infra.shard.ReferenciasReplicadas;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -10,10 +11,14 @@ public class UsuarioService {
 
     private final UsuarioRepository usuarioRepository;
 
+    private final ReferenciasReplicadas referenciasReplicadas;
+
     public UsuarioResponse saveUsuario(UsuarioRequest usuarioRequest) {
         BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(16);
         Usuario usuario = new Usuario(usuarioRequest);
         usuario.setSenha(encoder.encode(usuarioRequest.senha()));
-        return new UsuarioResponse(usuarioRepository.save(usuario));
+        usuario = usuarioRepository.save(usuario);
+        referenciasReplicadas.alterada("usuarios", usuario.getId());
+        return new UsuarioResponse(usuario);
     }
 }
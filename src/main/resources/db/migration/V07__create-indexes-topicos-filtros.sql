@@ -0,0 +1,8 @@
+create index idx_topicos_data_criacao on topicos(data_criacao);
+create index idx_topicos_curso_data on topicos(curso_id, data_criacao);
+create index idx_topicos_status_data on topicos(status_topico, data_criacao);
+create index idx_topicos_usuario_data on topicos(usuario_id, data_criacao);
+create index idx_topicos_curso_status_data on topicos(curso_id, status_topico, data_criacao);
+create index idx_topicos_usuario_curso_data on topicos(usuario_id, curso_id, data_criacao);
+create index idx_topicos_usuario_status_data on topicos(usuario_id, status_topico, data_criacao);
+create index idx_topicos_curso_status_usuario_data on topicos(curso_id, status_topico, usuario_id, data_criacao);
@@ -0,0 +1,2 @@
+alter table topicos add column visualizacoes bigint not null default 0;
+create index idx_topicos_visualizacoes on topicos(visualizacoes);
@@ -0,0 +1,6 @@
+create table tarefas_checkpoint(
+    nome varchar(100) not null,
+    ultimo_id bigint not null,
+    atualizado_em datetime not null,
+    primary key(nome)
+);
@@ -0,0 +1,32 @@
+create table topicos_arquivo(
+    id bigint not null,
+    titulo varchar(100) not null,
+    mensagem varchar(100) not null,
+    data_criacao datetime not null,
+    status_topico varchar(100) not null,
+    usuario_id bigint not null,
+    curso_id bigint not null,
+    visualizacoes bigint not null default 0,
+    arquivado_em datetime not null,
+    primary key(id, data_criacao),
+    key idx_topicos_arquivo_id(id)
+)
+partition by range columns(data_criacao) (
+    partition p_futuro values less than (maxvalue)
+);
+
+create table respostas_arquivo(
+    id bigint not null,
+    mensagem varchar(100) not null,
+    topico_id bigint not null,
+    data_criacao datetime not null,
+    usuario_id bigint not null,
+    solucao boolean not null,
+    arquivado_em datetime not null,
+    primary key(id, data_criacao),
+    key idx_respostas_arquivo_id(id),
+    key idx_respostas_arquivo_topico(topico_id)
+)
+partition by range columns(data_criacao) (
+    partition p_futuro values less than (maxvalue)
+);
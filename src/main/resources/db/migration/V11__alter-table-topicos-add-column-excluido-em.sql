@@ -0,0 +1,2 @@
+alter table topicos add column excluido_em datetime null;
+create index idx_topicos_excluido_em on topicos(excluido_em);
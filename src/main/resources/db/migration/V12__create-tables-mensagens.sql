@@ -0,0 +1,16 @@
+create table topicos_mensagens(
+    topico_id bigint not null,
+    conteudo mediumblob not null,
+    comprimida boolean not null,
+    primary key(topico_id)
+);
+
+create table respostas_mensagens(
+    resposta_id bigint not null,
+    conteudo mediumblob not null,
+    comprimida boolean not null,
+    primary key(resposta_id)
+);
+
+insert into topicos_mensagens(topico_id, conteudo, comprimida) select id, mensagem, false from topicos;
+insert into respostas_mensagens(resposta_id, conteudo, comprimida) select id, mensagem, false from respostas;
@@ -0,0 +1,10 @@
+create table invalidacoes(
+    id bigint auto_increment,
+    regiao varchar(50) not null,
+    chave varchar(100) not null,
+    origem varchar(36) not null,
+    criado_em datetime(3) not null default current_timestamp(3),
+    primary key(id)
+);
+
+create index idx_invalidacoes_criado_em on invalidacoes(criado_em, id);
@@ -0,0 +1,31 @@
+create table topico_resumo(
+    topico_id bigint not null,
+    titulo varchar(100) not null,
+    data_criacao datetime not null,
+    status_topico varchar(100) not null,
+    curso_id bigint not null,
+    curso_nome varchar(100) not null,
+    usuario_id bigint not null,
+    autor_nome varchar(100) not null,
+    total_respostas int not null,
+    ultima_atividade datetime not null,
+    primary key(topico_id)
+);
+
+create index idx_topico_resumo_data on topico_resumo(data_criacao);
+create index idx_topico_resumo_atividade on topico_resumo(ultima_atividade);
+create index idx_topico_resumo_curso_data on topico_resumo(curso_id, data_criacao);
+create index idx_topico_resumo_status_data on topico_resumo(status_topico, data_criacao);
+create index idx_topico_resumo_usuario_data on topico_resumo(usuario_id, data_criacao);
+create index idx_topico_resumo_curso_status_data on topico_resumo(curso_id, status_topico, data_criacao);
+
+insert into topico_resumo(topico_id, titulo, data_criacao, status_topico, curso_id, curso_nome, usuario_id, autor_nome,
+                          total_respostas, ultima_atividade)
+select t.id, t.titulo, t.data_criacao, t.status_topico, c.id, c.nome, u.id, u.nome,
+       coalesce(r.total, 0), greatest(t.data_criacao, coalesce(r.ultima, t.data_criacao))
+from topicos t
+join cursos c on c.id = t.curso_id
+join usuarios u on u.id = t.usuario_id
+left join (select topico_id, count(*) as total, max(data_criacao) as ultima from respostas group by topico_id) r
+    on r.topico_id = t.id
+where t.excluido_em is null;
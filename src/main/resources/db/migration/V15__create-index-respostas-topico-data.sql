@@ -0,0 +1 @@
+create index idx_respostas_topico_data on respostas(topico_id, data_criacao);
@@ -0,0 +1,23 @@
+create table topicos_arquivo_mensagens(
+    topico_id bigint not null,
+    conteudo mediumblob not null,
+    comprimida boolean not null,
+    primary key(topico_id)
+);
+
+create table respostas_arquivo_mensagens(
+    resposta_id bigint not null,
+    conteudo mediumblob not null,
+    comprimida boolean not null,
+    primary key(resposta_id)
+);
+
+insert into topicos_arquivo_mensagens(topico_id, conteudo, comprimida)
+select m.topico_id, m.conteudo, m.comprimida from topicos_mensagens m
+where m.topico_id in (select id from topicos_arquivo);
+delete from topicos_mensagens where topico_id in (select topico_id from topicos_arquivo_mensagens);
+
+insert into respostas_arquivo_mensagens(resposta_id, conteudo, comprimida)
+select m.resposta_id, m.conteudo, m.comprimida from respostas_mensagens m
+where m.resposta_id in (select id from respostas_arquivo);
+delete from respostas_mensagens where resposta_id in (select resposta_id from respostas_arquivo_mensagens);
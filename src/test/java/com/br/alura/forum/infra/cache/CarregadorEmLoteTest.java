@@ -0,0 +1,110 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarregadorEmLoteTest {
+
+    private static final int REQUISICOES = 50;
+
+    private final List<Set<Long>> consultas = new CopyOnWriteArrayList<>();
+
+    // ids pares existem, ímpares não
+    private final Function<Set<Long>, Map<Long, String>> consulta = ids -> {
+        consultas.add(Set.copyOf(ids));
+        return ids.stream().filter(id -> id % 2 == 0).collect(Collectors.toMap(id -> id, id -> "topico-" + id));
+    };
+
+    // a primeira busca pode chegar sozinha e executar sem esperar; a demora dela segura as outras juntas
+    private final Function<Set<Long>, Map<Long, String>> consultaLenta = ids -> {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        return consulta.apply(ids);
+    };
+
+    @Test
+    void agrupaBuscasConcorrentesNumaUnicaConsulta() throws Exception {
+        var carregador = new CarregadorEmLote<>(consultaLenta, 100, Duration.ofMillis(200), Duration.ofSeconds(5));
+        var largada = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(REQUISICOES);
+
+        try {
+            var resultados = new ArrayList<Future<Optional<String>>>();
+            for (long id = 0; id < REQUISICOES; id++) {
+                long chave = id;
+                resultados.add(executor.submit(() -> {
+                    largada.await();
+                    return carregador.carregar(chave);
+                }));
+            }
+            largada.countDown();
+
+            for (int id = 0; id < REQUISICOES; id++) {
+                var resultado = resultados.get(id).get();
+                assertEquals(id % 2 == 0 ? Optional.of("topico-" + id) : Optional.empty(), resultado);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(REQUISICOES, consultas.stream().mapToInt(Set::size).sum());
+        assertTrue(consultas.size() < REQUISICOES / 2, () -> consultas.size() + " consultas");
+    }
+
+    @Test
+    void loteCheioExecutaSemEsperarAJanela() {
+        var carregador = new CarregadorEmLote<>(consulta, 1, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        assertEquals(Optional.of("topico-2"), carregador.carregar(2L));
+        assertEquals(List.of(Set.of(2L)), consultas);
+    }
+
+    @Test
+    void carregarTodosRemoveIdsRepetidos() {
+        var carregador = new CarregadorEmLote<>(consulta, 100, Duration.ofMillis(2), Duration.ofSeconds(5));
+
+        var encontrados = carregador.carregarTodos(List.of(4L, 3L, 4L));
+
+        assertEquals(Map.of(4L, "topico-4"), encontrados);
+        assertEquals(List.of(Set.of(4L, 3L)), consultas);
+    }
+
+    @Test
+    void buscaSozinhaNaoEsperaAJanela() {
+        var carregador = new CarregadorEmLote<>(consulta, 100, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                assertEquals(Optional.of("topico-4"), carregador.carregar(4L)));
+    }
+
+    @Test
+    void carregarTodosRejeitaIdVazio() {
+        var carregador = new CarregadorEmLote<>(consulta, 100, Duration.ofMillis(2), Duration.ofSeconds(5));
+
+        var exception = assertThrows(ResponseStatusException.class,
+                () -> carregador.carregarTodos(Arrays.asList(1L, null, 2L)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        assertTrue(consultas.isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FragmentoCacheTest {
+
+    private final AtomicInteger serializacoes = new AtomicInteger();
+
+    private final Function<String, byte[]> serializar = valor -> {
+        serializacoes.incrementAndGet();
+        return ("\"" + valor + "\"").getBytes(StandardCharsets.UTF_8);
+    };
+
+    @Test
+    void reaproveitaOFragmentoAteAChaveSerInvalidada() {
+        var cache = new FragmentoCache<Long>(100);
+
+        cache.obter(1L, "v1", cache.marca(), serializar);
+        var emCache = cache.obter(1L, "ignorado", cache.marca(), serializar);
+        cache.invalidar(1L);
+        var recarregado = cache.obter(1L, "v2", cache.marca(), serializar);
+
+        assertEquals("\"v1\"", emCache.getValue());
+        assertEquals("\"v2\"", recarregado.getValue());
+        assertEquals(2, serializacoes.get());
+        assertEquals(1, cache.acertos());
+    }
+
+    @Test
+    void naoGuardaValorLidoAntesDeUmaInvalidacao() {
+        var cache = new FragmentoCache<Long>(100);
+
+        // a leitura começou antes da escrita ser confirmada e invalidada, então o valor pode estar desatualizado
+        long marca = cache.marca();
+        cache.invalidar(1L);
+        var antigo = cache.obter(1L, "antigo", marca, serializar);
+        var novo = cache.obter(1L, "novo", cache.marca(), serializar);
+
+        assertEquals("\"antigo\"", antigo.getValue());
+        assertEquals("\"novo\"", novo.getValue());
+        assertEquals(0, cache.acertos());
+    }
+
+    @Test
+    void invalidarTudoDescartaTodasAsChaves() {
+        var cache = new FragmentoCache<Long>(100);
+        cache.obter(1L, "a", cache.marca(), serializar);
+        cache.obter(2L, "b", cache.marca(), serializar);
+
+        cache.invalidarTudo();
+
+        assertEquals(0, cache.tamanho());
+        assertEquals("\"c\"", cache.obter(1L, "c", cache.marca(), serializar).getValue());
+    }
+
+    @Test
+    void comAtrasoDeLeituraNaoGuardaChaveInvalidadaDentroDoAtraso() throws InterruptedException {
+        var cache = new FragmentoCache<Long>(100, Duration.ofMillis(200));
+        cache.invalidar(1L);
+
+        // a réplica pode ainda não ter a escrita que causou a invalidação
+        cache.obter(1L, "talvez antigo", cache.marca(), serializar);
+        cache.obter(2L, "b", cache.marca(), serializar);
+        assertEquals(1, cache.tamanho());
+
+        Thread.sleep(250);
+        cache.obter(1L, "atual", cache.marca(), serializar);
+        var emCache = cache.obter(1L, "ignorado", cache.marca(), serializar);
+
+        assertEquals("\"atual\"", emCache.getValue());
+        assertEquals(2, cache.tamanho());
+    }
+}
@@ -0,0 +1,139 @@
+package com.filiperobot.aluraforumapi.infra.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int REQUISICOES = 100;
+
+    @Test
+    void executaUmaConsultaPorChaveParaRequisicoesConcorrentes() throws Exception {
+        var singleFlight = new SingleFlight<Long, String>(Duration.ofSeconds(5));
+        var consultas = new AtomicInteger();
+        var liberarConsulta = new CountDownLatch(1);
+        var threads = new CopyOnWriteArrayList<Thread>();
+        var executor = Executors.newFixedThreadPool(REQUISICOES, tarefa -> {
+            var thread = new Thread(tarefa);
+            threads.add(thread);
+            return thread;
+        });
+
+        try {
+            var resultados = new ArrayList<Future<String>>();
+            for (int i = 0; i < REQUISICOES; i++) {
+                resultados.add(executor.submit(() -> singleFlight.carregar(1L, id -> {
+                    consultas.incrementAndGet();
+                    aguardar(liberarConsulta);
+                    return "topico-" + id;
+                })));
+            }
+
+            // a consulta só é liberada quando todas as threads estão paradas: uma no latch, as outras no futuro
+            aguardarBloqueadas(threads, REQUISICOES);
+            liberarConsulta.countDown();
+
+            for (var resultado : resultados) {
+                assertEquals("topico-1", resultado.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, consultas.get());
+            assertEquals(0, singleFlight.emAndamento());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void propagaErroParaTodasAsRequisicoesAguardando() throws Exception {
+        var singleFlight = new SingleFlight<Long, String>(Duration.ofSeconds(5));
+        var liberarConsulta = new CountDownLatch(1);
+        var seguidorChegou = new CountDownLatch(1);
+        var threads = new CopyOnWriteArrayList<Thread>();
+        var executor = Executors.newFixedThreadPool(2, tarefa -> {
+            var thread = new Thread(tarefa);
+            threads.add(thread);
+            return thread;
+        });
+
+        try {
+            Future<String> lider = executor.submit(() -> singleFlight.carregar(1L, id -> {
+                aguardar(liberarConsulta);
+                throw new IllegalArgumentException("Tópico não encontrado");
+            }));
+            while (singleFlight.emAndamento() == 0) {
+                Thread.onSpinWait();
+            }
+            Future<String> seguidor = executor.submit(() -> {
+                seguidorChegou.countDown();
+                return singleFlight.carregar(1L, id -> "nao deveria executar");
+            });
+
+            // o erro só é liberado com o seguidor parado no futuro do líder, e não antes de ele chegar
+            assertTrue(seguidorChegou.await(5, TimeUnit.SECONDS));
+            aguardarBloqueadas(threads, 2);
+            liberarConsulta.countDown();
+
+            var erroLider = assertThrows(ExecutionException.class, () -> lider.get(5, TimeUnit.SECONDS));
+            var erroSeguidor = assertThrows(ExecutionException.class, () -> seguidor.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, erroLider.getCause());
+            assertInstanceOf(IllegalArgumentException.class, erroSeguidor.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lancaTimeoutQuandoACargaDemora() throws Exception {
+        var singleFlight = new SingleFlight<Long, String>(Duration.ofMillis(50));
+        var liberarConsulta = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> singleFlight.carregar(1L, id -> {
+                aguardar(liberarConsulta);
+                return "topico-1";
+            }));
+            while (singleFlight.emAndamento() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(SingleFlightTimeoutException.class, () -> singleFlight.carregar(1L, id -> "topico-1"));
+        } finally {
+            liberarConsulta.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void aguardarBloqueadas(List<Thread> threads, int quantidade) throws InterruptedException {
+        var limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (threads.size() < quantidade || !threads.stream().allMatch(SingleFlightTest::bloqueada)) {
+            assertTrue(System.nanoTime() < limite, "as requisições não chegaram ao single flight");
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+
+    private static boolean bloqueada(Thread thread) {
+        var estado = thread.getState();
+        return estado == Thread.State.WAITING || estado == Thread.State.TIMED_WAITING;
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.filiperobot.aluraforumapi.infra.concorrencia;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimiteAdaptativoTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void reduzUmaVezPorJanelaComRajadaLenta() {
+        var limite = new LimiteAdaptativo(100, 2, 200);
+        long agora = janelaRapida(limite, 0);
+
+        for (int i = 0; i < 50; i++) {
+            limite.adquirir();
+            limite.liberar(50 * MS, true, agora + i);
+        }
+        assertEquals(100, limite.limite());
+
+        limite.adquirir();
+        limite.liberar(50 * MS, true, agora + 200 * MS);
+        assertEquals(90, limite.limite());
+    }
+
+    @Test
+    void ignoraAmostraLentaIsoladaAbaixoDoPercentil() {
+        var limite = new LimiteAdaptativo(100, 2, 200);
+        long agora = janelaRapida(limite, 0);
+
+        for (int i = 0; i < 20; i++) {
+            limite.adquirir();
+            limite.liberar(i == 0 ? 50 * MS : MS, true, agora + i * 10 * MS);
+        }
+
+        assertEquals(100, limite.limite());
+    }
+
+    @Test
+    void falhaNaJanelaReduzOLimite() {
+        var limite = new LimiteAdaptativo(100, 2, 200);
+        long agora = janelaRapida(limite, 0);
+
+        for (int i = 0; i < 10; i++) {
+            limite.adquirir();
+            limite.liberar(MS, i != 0, agora + i * 20 * MS);
+        }
+
+        assertEquals(90, limite.limite());
+    }
+
+    private static long janelaRapida(LimiteAdaptativo limite, long inicio) {
+        for (int i = 0; i < 10; i++) {
+            limite.adquirir();
+            limite.liberar(MS, true, inicio + i * 20 * MS);
+        }
+        return inicio + 200 * MS;
+    }
+}
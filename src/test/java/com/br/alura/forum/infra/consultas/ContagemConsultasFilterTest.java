@@ -0,0 +1,70 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ContagemConsultasFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ContagemConsultasFilter filtro =
+            new ContagemConsultasFilter(meterRegistry, new MockEnvironment(), true, 3);
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ConsultasController())
+            .addFilters(filtro)
+            .build();
+
+    @Test
+    void dentroDoOrcamentoExpoeAsConsultasNoCabecalho() throws Exception {
+        mockMvc.perform(get("/consultas/2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Consultas", "2"))
+                .andExpect(content().string("2 consultas"));
+    }
+
+    @Test
+    void acimaDoOrcamentoFalhaAntesDeEnviarOCorpo() throws Exception {
+        var controller = new ConsultasController();
+        var request = new MockHttpServletRequest("GET", "/consultas/4");
+        var response = new MockHttpServletResponse();
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/consultas/{quantidade}");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod(controller,
+                ConsultasController.class.getDeclaredMethod("consultar", int.class)));
+
+        var exception = assertThrows(IllegalStateException.class, () -> filtro.doFilter(request, response,
+                (req, res) -> res.getWriter().write(controller.consultar(4))));
+
+        assertTrue(exception.getMessage().contains("acima do orçamento de 3"), exception.getMessage());
+        assertFalse(response.isCommitted());
+        assertEquals("", response.getContentAsString());
+        assertEquals(1, meterRegistry.counter("forum.http.consultas.orcamento.excedido",
+                "metodo", "GET", "uri", "/consultas/{quantidade}").count());
+    }
+
+    @RestController
+    static class ConsultasController {
+
+        @OrcamentoConsultas(3)
+        @GetMapping("/consultas/{quantidade}")
+        String consultar(@PathVariable int quantidade) {
+            for (int i = 0; i < quantidade; i++) {
+                ContagemConsultas.atual().registrar("select * from topicos where id=?");
+            }
+            return quantidade + " consultas";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContagemConsultasTest {
+
+    private final ContadorConsultasInspector inspector = new ContadorConsultasInspector();
+
+    @AfterEach
+    void encerrar() {
+        ContagemConsultas.encerrar();
+    }
+
+    @Test
+    void contaComandosEAgrupaSqlRepetido() {
+        var contagem = ContagemConsultas.iniciar();
+
+        inspector.inspect("select * from usuarios where id=?");
+        inspector.inspect("select * from usuarios where id=?");
+        inspector.inspect("select * from cursos where id=?");
+
+        assertEquals(3, contagem.total());
+        assertEquals(2, contagem.porSql().get("select * from usuarios where id=?").get());
+    }
+
+    @Test
+    void ignoraComandosForaDeUmaRequisicao() {
+        assertEquals("select 1", inspector.inspect("select 1"));
+        assertNull(ContagemConsultas.atual());
+    }
+
+    @Test
+    void contaConsultasDeOutrasThreadsNaRequisicaoQueAsDisparou() {
+        var contagem = ContagemConsultas.iniciar();
+
+        CompletableFuture.supplyAsync(ContagemConsultas.comContextoAtual(() -> inspector.inspect("select 1"))).join();
+
+        assertEquals(1, contagem.total());
+    }
+}
@@ -0,0 +1,113 @@
+package com.filiperobot.aluraforumapi.infra.consultas;
+
+import com.br.alura.forum.ForumApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// cada tópico tem autor e curso diferentes, então carregar um relacionamento por linha estoura o orçamento.
+// A configuração de teste liga alura.forum.consultas.orcamento.falhar, e o excesso faz a requisição falhar
+@SpringBootTest(classes = ForumApplication.class)
+@AutoConfigureMockMvc
+@Transactional
+class OrcamentoConsultasEndpointsTest {
+
+    private static final int TOPICOS = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> cursos = new ArrayList<>();
+    private String token;
+
+    @BeforeEach
+    void popular() throws Exception {
+        var usuarios = new SimpleJdbcInsert(jdbcTemplate).withTableName("usuarios").usingGeneratedKeyColumns("id");
+        var cursosInsert = new SimpleJdbcInsert(jdbcTemplate).withTableName("cursos").usingGeneratedKeyColumns("id");
+        var topicos = new SimpleJdbcInsert(jdbcTemplate).withTableName("topicos").usingGeneratedKeyColumns("id");
+        var resumos = new SimpleJdbcInsert(jdbcTemplate).withTableName("topico_resumo");
+
+        usuarios.execute(Map.of("nome", "Leitor", "email", "leitor@orcamento.test",
+                "senha", passwordEncoder.encode("123456")));
+
+        var agora = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < TOPICOS; i++) {
+            long autor = usuarios.executeAndReturnKey(Map.of("nome", "Autor " + i,
+                    "email", "autor" + i + "@orcamento.test", "senha", "x")).longValue();
+            long curso = cursosInsert.executeAndReturnKey(Map.of("nome", "Curso orçamento " + i,
+                    "categoria", "Testes")).longValue();
+            cursos.add(curso);
+
+            var dataCriacao = agora.minusMinutes(i);
+            long topico = topicos.executeAndReturnKey(Map.of("titulo", "Tópico " + i, "mensagem", "Mensagem " + i,
+                    "data_criacao", dataCriacao, "status_topico", "NAO_RESPONDIDO",
+                    "usuario_id", autor, "curso_id", curso)).longValue();
+            resumos.execute(Map.of("topico_id", topico, "titulo", "Tópico " + i, "data_criacao", dataCriacao,
+                    "status_topico", "NAO_RESPONDIDO", "curso_id", curso, "curso_nome", "Curso orçamento " + i,
+                    "usuario_id", autor, "autor_nome", "Autor " + i, "total_respostas", 0,
+                    "ultima_atividade", dataCriacao));
+        }
+
+        var login = mockMvc.perform(post("/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"leitor@orcamento.test\",\"senha\":\"123456\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        token = objectMapper.readTree(login.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    @Test
+    void listagemDeTopicosCabeNoOrcamento() throws Exception {
+        verificar(get("/topicos").param("size", String.valueOf(TOPICOS)));
+    }
+
+    @Test
+    void listagemDeTopicosDeUmCursoCabeNoOrcamento() throws Exception {
+        verificar(get("/topicos").param("curso", String.valueOf(cursos.get(0))));
+    }
+
+    @Test
+    void listagemDeCursosCabeNoOrcamento() throws Exception {
+        verificar(get("/cursos").param("size", String.valueOf(TOPICOS)));
+    }
+
+    private void verificar(MockHttpServletRequestBuilder requisicao) throws Exception {
+        var resposta = mockMvc.perform(requisicao.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        int consultas = Integer.parseInt(resposta.getHeader("X-Consultas"));
+        assertTrue(consultas <= 3, () -> consultas + " consultas");
+    }
+}
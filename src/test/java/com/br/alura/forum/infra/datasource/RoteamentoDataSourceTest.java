@@ -0,0 +1,113 @@
+package com.filiperobot.aluraforumapi.infra.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoteamentoDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReplicaSimulada replica;
+    private ReplicaMonitor replicaMonitor;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate escrita;
+    private TransactionTemplate leitura;
+
+    @BeforeEach
+    void configurar() {
+        var primario = banco("primario");
+        replica = new ReplicaSimulada(banco("replica"));
+        replicaMonitor = new ReplicaMonitor(replica, Duration.ofSeconds(2), false, meterRegistry);
+
+        var dataSource = new LazyConnectionDataSourceProxy(
+                new RoteamentoDataSource(primario, replica, replicaMonitor, meterRegistry));
+        var transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        escrita = new TransactionTemplate(transactionManager);
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+    }
+
+    @AfterEach
+    void limpar() {
+        LeituraPropria.definir(false);
+    }
+
+    @Test
+    void enviaLeituraParaReplicaEEscritaParaPrimario() {
+        assertEquals("replica", leitura.execute(status -> origem()));
+        assertEquals("primario", escrita.execute(status -> origem()));
+
+        assertEquals(1, meterRegistry.get("forum.datasource.roteamento")
+                .tags("destino", "replica", "motivo", "leitura").counter().count());
+    }
+
+    @Test
+    void mantemLeituraNoPrimarioDepoisDeEscritaDoUsuario() {
+        var leituraPropria = new LeituraPropria(Duration.ofSeconds(5));
+        leituraPropria.registrarEscrita("ana@forum.com");
+
+        LeituraPropria.definir(leituraPropria.escreveuRecentemente("ana@forum.com"));
+        assertEquals("primario", leitura.execute(status -> origem()));
+
+        LeituraPropria.definir(leituraPropria.escreveuRecentemente("bruno@forum.com"));
+        assertEquals("replica", leitura.execute(status -> origem()));
+    }
+
+    @Test
+    void voltaParaPrimarioQuandoReplicaFicaIndisponivel() {
+        replica.fora = true;
+        replicaMonitor.verificar();
+        assertEquals("primario", leitura.execute(status -> origem()));
+
+        replica.fora = false;
+        replicaMonitor.verificar();
+        assertEquals("replica", leitura.execute(status -> origem()));
+    }
+
+    private String origem() {
+        return jdbcTemplate.queryForObject("select nome from origem", String.class);
+    }
+
+    private static DataSource banco(String nome) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + nome + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table origem(nome varchar(20))");
+        jdbcTemplate.update("insert into origem values (?)", nome);
+        return dataSource;
+    }
+
+    private static class ReplicaSimulada extends DelegatingDataSource {
+        private volatile boolean fora;
+
+        private ReplicaSimulada(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (fora) {
+                throw new SQLException("Réplica fora do ar");
+            }
+            return super.getConnection();
+        }
+    }
+}
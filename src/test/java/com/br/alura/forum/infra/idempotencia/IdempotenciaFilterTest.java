@@ -0,0 +1,121 @@
+package com.filiperobot.aluraforumapi.infra.idempotencia;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotenciaFilterTest {
+
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    // devolve o corpo recebido, para a reprodução poder ser comparada com a resposta original
+    private final FilterChain criar = (request, response) -> {
+        int execucao = execucoes.incrementAndGet();
+        var corpo = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        var httpResponse = (HttpServletResponse) response;
+        httpResponse.setStatus(HttpServletResponse.SC_CREATED);
+        httpResponse.setContentType("application/json");
+        httpResponse.setHeader(HttpHeaders.LOCATION, "/topicos/" + execucao);
+        httpResponse.getWriter().write("{\"execucao\":" + execucao + ",\"corpo\":" + corpo + "}");
+    };
+
+    @Test
+    void mesmaChaveReproduzARespostaSemExecutarDeNovo() throws Exception {
+        var filtro = filtro(10);
+
+        var original = enviar(filtro, "a", "{\"titulo\":\"Dúvida\"}", criar);
+        var reproduzida = enviar(filtro, "a", "{\"titulo\":\"Dúvida\"}", criar);
+
+        assertEquals(1, execucoes.get());
+        assertEquals(HttpServletResponse.SC_CREATED, reproduzida.getStatus());
+        assertEquals("/topicos/1", reproduzida.getHeader(HttpHeaders.LOCATION));
+        assertEquals("true", reproduzida.getHeader("Idempotency-Replayed"));
+        assertEquals(original.getContentAsString(), reproduzida.getContentAsString());
+        assertNull(original.getHeader("Idempotency-Replayed"));
+    }
+
+    @Test
+    void mesmaChaveComOutroCorpoEhRecusada() throws Exception {
+        var filtro = filtro(10);
+
+        enviar(filtro, "a", "{\"titulo\":\"Dúvida\"}", criar);
+        var recusada = enviar(filtro, "a", "{\"titulo\":\"Outra\"}", criar);
+
+        assertEquals(1, execucoes.get());
+        assertEquals(422, recusada.getStatus());
+    }
+
+    @Test
+    void chavesMaisAntigasSaemAcimaDoLimite() throws Exception {
+        var filtro = filtro(1);
+
+        enviar(filtro, "a", "{}", criar);
+        enviar(filtro, "b", "{}", criar);
+        var novamente = enviar(filtro, "a", "{}", criar);
+
+        assertEquals(3, execucoes.get());
+        assertNull(novamente.getHeader("Idempotency-Replayed"));
+        assertEquals("/topicos/3", novamente.getHeader(HttpHeaders.LOCATION));
+    }
+
+    @Test
+    void corpoGuardadoPodeSerLidoDeFormaAssincrona() throws Exception {
+        var lidos = new ByteArrayOutputStream();
+        var concluida = new AtomicInteger();
+
+        enviar(filtro(10), "a", "{\"titulo\":\"Dúvida\"}", (request, response) -> {
+            var entrada = request.getInputStream();
+            entrada.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    lidos.write(entrada.readAllBytes());
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    concluida.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable);
+                }
+            });
+        });
+
+        assertEquals("{\"titulo\":\"Dúvida\"}", lidos.toString(StandardCharsets.UTF_8));
+        assertEquals(1, concluida.get());
+    }
+
+    private static IdempotenciaFilter filtro(int maximoEntradas) {
+        return new IdempotenciaFilter(Duration.ofHours(1), Duration.ofSeconds(1), maximoEntradas,
+                DataSize.ofKilobytes(64));
+    }
+
+    private static MockHttpServletResponse enviar(IdempotenciaFilter filtro, String chave, String corpo,
+                                                  FilterChain chain) throws Exception {
+        var request = new MockHttpServletRequest("POST", "/topicos");
+        request.setServletPath("/topicos");
+        request.addHeader(IdempotenciaFilter.HEADER, chave);
+        request.setContentType("application/json");
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+        var response = new MockHttpServletResponse();
+
+        filtro.doFilter(request, response, chain);
+
+        return response;
+    }
+}
@@ -0,0 +1,128 @@
+package com.filiperobot.aluraforumapi.infra.invalidacao;
+
+import com.filiperobot.aluraforumapi.infra.shard.ShardProperties;
+import com.filiperobot.aluraforumapi.infra.shard.Shards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidacaoBusTest {
+
+    private static final Duration MARGEM = Duration.ofMillis(100);
+    private static final String REGIAO = "topicos";
+
+    private final List<String> recebidas = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transacao;
+    private Shards shards;
+
+    @BeforeEach
+    void configurar() {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:invalidacoes" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                create table invalidacoes(
+                    id bigint auto_increment primary key,
+                    regiao varchar(50) not null,
+                    chave varchar(100) not null,
+                    origem varchar(36) not null,
+                    criado_em timestamp(3) not null default localtimestamp(3))""");
+        transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        shards = new Shards(new ShardProperties(false, 2, null, null));
+    }
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+        shards.aoEncerrar();
+    }
+
+    // a transação longa publica antes da curta, mas confirma depois de uma leitura que já passou da margem
+    @Test
+    void entregaInvalidacaoDeTransacaoConfirmadaForaDeOrdem() throws Exception {
+        var leitor = bus(Duration.ofMinutes(10));
+        var escritor = bus(Duration.ofMinutes(10));
+        leitor.assinar(REGIAO, recebidas::add);
+        leitor.acompanhar();
+
+        var publicou = new CountDownLatch(1);
+        var confirmar = new CountDownLatch(1);
+        var longa = executor.submit(() -> transacao.executeWithoutResult(status -> {
+            escritor.publicar(REGIAO, "1");
+            publicou.countDown();
+            aguardar(confirmar);
+        }));
+        assertTrue(publicou.await(5, TimeUnit.SECONDS));
+
+        transacao.executeWithoutResult(status -> escritor.publicar(REGIAO, "2"));
+        TimeUnit.MILLISECONDS.sleep(MARGEM.toMillis() * 3);
+        leitor.acompanhar();
+        assertEquals(List.of("2"), recebidas);
+
+        TimeUnit.MILLISECONDS.sleep(MARGEM.toMillis() * 3);
+        confirmar.countDown();
+        longa.get(5, TimeUnit.SECONDS);
+        leitor.acompanhar();
+
+        assertEquals(List.of("2", "1"), recebidas);
+    }
+
+    @Test
+    void descartaTudoQuandoALeituraFicaParadaAlemDaRetencao() throws Exception {
+        var leitor = bus(Duration.ofMillis(200));
+        var escritor = bus(Duration.ofMillis(200));
+        leitor.assinar(REGIAO, recebidas::add);
+        leitor.acompanhar();
+
+        TimeUnit.MILLISECONDS.sleep(400);
+        escritor.publicar(REGIAO, "1");
+        leitor.acompanhar();
+
+        assertEquals(List.of(InvalidacaoBus.TUDO), recebidas);
+    }
+
+    @Test
+    void ignoraInvalidacoesPublicadasPelaPropriaInstancia() {
+        var bus = bus(Duration.ofMinutes(10));
+        bus.assinar(REGIAO, recebidas::add);
+        bus.acompanhar();
+
+        bus.publicar(REGIAO, "1");
+        bus.acompanhar();
+
+        assertTrue(recebidas.isEmpty());
+    }
+
+    private InvalidacaoBus bus(Duration retencao) {
+        return new InvalidacaoBus(jdbcTemplate, shards, new StaticListableBeanFactory().getBeanProvider(CacheManager.class),
+                new SimpleMeterRegistry(), MARGEM, retencao);
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
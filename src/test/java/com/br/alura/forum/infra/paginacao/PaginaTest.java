@@ -0,0 +1,38 @@
+package com.filiperobot.aluraforumapi.infra.paginacao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaginaTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    record Item(Long id, String nome) {
+    }
+
+    @Test
+    void serializaSomenteOsCamposDoEnvelope() throws Exception {
+        var page = new PageImpl<>(List.of(new Item(1L, "a"), new Item(2L, "b")), PageRequest.of(1, 2), 7);
+
+        var json = objectMapper.writeValueAsString(Pagina.de(page));
+
+        assertEquals("{\"conteudo\":[{\"id\":1,\"nome\":\"a\"},{\"id\":2,\"nome\":\"b\"}]," +
+                "\"pagina\":1,\"tamanho\":2,\"temProxima\":true,\"total\":7}", json);
+    }
+
+    @Test
+    void omiteOTotalQuandoAConsultaNaoConta() throws Exception {
+        var slice = new SliceImpl<>(List.of(new Item(1L, "a")), PageRequest.of(0, 10), false);
+
+        var json = objectMapper.writeValueAsString(Pagina.de(slice));
+
+        assertEquals("{\"conteudo\":[{\"id\":1,\"nome\":\"a\"}],\"pagina\":0,\"tamanho\":10,\"temProxima\":false}", json);
+    }
+}
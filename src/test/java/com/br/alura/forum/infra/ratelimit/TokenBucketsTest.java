@@ -0,0 +1,34 @@
+package com.filiperobot.aluraforumapi.infra.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+
+    @Test
+    void chaveZeroTemBucketProprio() {
+        var buckets = new TokenBuckets(1);
+        long chave = TokenBuckets.chave(0, 0);
+
+        assertEquals(0, chave);
+        assertEquals(1, buckets.consumir(chave, 2, 1, 0));
+        assertEquals(0, buckets.consumir(chave, 2, 1, 0));
+        assertTrue(buckets.consumir(chave, 2, 1, 0) < 0);
+        assertEquals(1, buckets.tamanho());
+    }
+
+    @Test
+    void mantemAsChavesAoRedimensionarERemoverOciosos() {
+        var buckets = new TokenBuckets(1);
+        for (long usuario = 0; usuario < 100; usuario++) {
+            buckets.consumir(TokenBuckets.chave(usuario, 0), 5, 1, usuario);
+        }
+
+        assertEquals(100, buckets.tamanho());
+        assertEquals(50, buckets.removerOciosos(50));
+        assertEquals(3, buckets.consumir(TokenBuckets.chave(99, 0), 5, 1, 99));
+        assertEquals(4, buckets.consumir(TokenBuckets.chave(0, 0), 5, 1, 99));
+        assertEquals(51, buckets.tamanho());
+    }
+}
@@ -0,0 +1,37 @@
+package com.filiperobot.aluraforumapi.infra.serializacao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.filiperobot.aluraforumapi.infra.paginacao.Pagina;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatosBinariosTest {
+
+    record Topico(Long id, String titulo, String status, String autor, String curso, Long visualizacoes) {
+    }
+
+    // página típica da listagem: 20 tópicos, mesmos nomes de campo repetidos em cada item
+    private final Pagina<Topico> pagina = Pagina.de(new PageImpl<>(LongStream.rangeClosed(1, 20)
+            .mapToObj(id -> new Topico(id, "Dúvida sobre o tópico " + id, "NAO_RESPONDIDO", "Autor " + id % 5,
+                    "Spring Boot 3", id * 37))
+            .toList(), PageRequest.of(0, 20), 400));
+
+    @Test
+    void codificaAMesmaPaginaEmTamanhoMenorQueJson() throws Exception {
+        var json = new ObjectMapper().writeValueAsBytes(pagina);
+        var cbor = new CBORMapper().writeValueAsBytes(pagina);
+        var smile = new SmileMapper().writeValueAsBytes(pagina);
+
+        assertEquals(new ObjectMapper().readTree(json), new CBORMapper().readTree(cbor));
+        assertEquals(new ObjectMapper().readTree(json), new SmileMapper().readTree(smile));
+        assertTrue(cbor.length < json.length, () -> "CBOR " + cbor.length + " bytes, JSON " + json.length);
+        assertTrue(smile.length < cbor.length, () -> "Smile " + smile.length + " bytes, CBOR " + cbor.length);
+    }
+}
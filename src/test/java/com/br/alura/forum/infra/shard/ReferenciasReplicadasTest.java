@@ -0,0 +1,104 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// as migrações reais, até a V09: a V10 usa partições, que só existem no MySQL
+class ReferenciasReplicadasTest {
+
+    private JdbcTemplate primeira;
+    private JdbcTemplate segunda;
+    private ReferenciasReplicadas referencias;
+
+    @BeforeEach
+    void migrar() {
+        var a = shard();
+        var b = shard();
+        primeira = new JdbcTemplate(a);
+        segunda = new JdbcTemplate(b);
+        referencias = new ReferenciasReplicadas(a, Map.of("b", b));
+
+        primeira.update("insert into usuarios(id, nome, email, senha) values (7, 'Autor', 'autor@shard.test', 'x')");
+        primeira.update("insert into cursos(id, nome, categoria) values (3, 'Spring', 'Java')");
+    }
+
+    @Test
+    void semAsCopiasOTopicoNaSegundaShardFalhaNaChaveEstrangeira() {
+        assertThrows(DataIntegrityViolationException.class, () -> criarTopico(segunda));
+    }
+
+    @Test
+    void sincronizarPermiteCriarTopicoNaSegundaShard() {
+        referencias.sincronizar();
+
+        criarTopico(segunda);
+
+        assertEquals("Autor", segunda.queryForObject("""
+                select u.nome from topicos t join usuarios u on u.id = t.usuario_id""", String.class));
+        assertEquals("Spring", segunda.queryForObject("""
+                select c.nome from topicos t join cursos c on c.id = t.curso_id""", String.class));
+    }
+
+    @Test
+    void alteracaoForaDeTransacaoChegaNaSegundaShardComOsComandosRegistrados() {
+        segunda.update("create table renomeados(id bigint)");
+        referencias.aoReplicar("usuarios", "insert into renomeados(id) values (:id)");
+        referencias.sincronizar();
+
+        primeira.update("update usuarios set nome = 'Autora' where id = 7");
+        referencias.alterada("usuarios", 7L);
+
+        assertEquals("Autora", segunda.queryForObject("select nome from usuarios where id = 7", String.class));
+        assertEquals(7L, segunda.queryForObject("select id from renomeados", Long.class));
+    }
+
+    @Test
+    void remocaoSaiDaSegundaShardQuandoNadaApontaParaACopia() {
+        referencias.sincronizar();
+
+        primeira.update("delete from cursos where id = 3");
+        referencias.replicar("cursos", 3L);
+
+        assertEquals(0, segunda.queryForObject("select count(*) from cursos", Integer.class));
+    }
+
+    @Test
+    void remocaoMantemACopiaUsadaPorTopicosDaSegundaShard() {
+        referencias.sincronizar();
+        criarTopico(segunda);
+
+        primeira.update("delete from usuarios where id = 7");
+        referencias.replicar("usuarios", 7L);
+
+        assertEquals(1, segunda.queryForObject("select count(*) from usuarios", Integer.class));
+    }
+
+    private static void criarTopico(JdbcTemplate shard) {
+        shard.update("""
+                insert into topicos(titulo, mensagem, data_criacao, status_topico, usuario_id, curso_id)
+                values ('Dúvida', 'Mensagem', ?, 'NAO_RESPONDIDO', 7, 3)""", LocalDateTime.now());
+    }
+
+    private static DataSource shard() {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .target("9")
+                .load()
+                .migrate();
+        return dataSource;
+    }
+}
@@ -0,0 +1,112 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// reproduz o open-in-view: um EntityManager ligado à thread que segura a conexão da primeira consulta
+class ShardsJpaTest {
+
+    private static final List<String> NOMES = List.of("a", "b");
+
+    private final Map<String, DataSource> bancos = new LinkedHashMap<>();
+    private EntityManagerFactory fabrica;
+    private EntityManager entityManager;
+    private EntityManager requisicao;
+    private Shards shards;
+
+    @BeforeEach
+    void configurar() {
+        NOMES.forEach(nome -> bancos.put(nome, banco(nome)));
+        shards = new Shards(new ShardProperties(true, 2,
+                NOMES.stream().map(nome -> new ShardProperties.No(nome, null, null, null)).toList(), Map.of()),
+                () -> fabrica);
+
+        var fabricaBean = new LocalContainerEntityManagerFactoryBean();
+        fabricaBean.setDataSource(new LazyConnectionDataSourceProxy(new ShardRoteamentoDataSource(bancos, "a")));
+        fabricaBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        fabricaBean.setPackagesToScan(ShardsJpaTest.class.getPackageName());
+        fabricaBean.setJpaPropertyMap(Map.of(AvailableSettings.CONNECTION_HANDLING, "DELAYED_ACQUISITION_AND_HOLD"));
+        fabricaBean.afterPropertiesSet();
+        fabrica = fabricaBean.getObject();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(fabrica);
+
+        requisicao = fabrica.createEntityManager();
+        TransactionSynchronizationManager.bindResource(fabrica, new EntityManagerHolder(requisicao));
+    }
+
+    @AfterEach
+    void encerrar() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(fabrica);
+        requisicao.close();
+        fabrica.close();
+    }
+
+    @Test
+    void leituraNaShardNaoUsaAConexaoPresaPelaRequisicao() {
+        assertEquals("a", marcador());
+
+        assertEquals("b", shards.naShard("b", this::marcador));
+        assertEquals("a", marcador());
+    }
+
+    @Test
+    void transacaoAbertaDentroDaShardGravaNela() {
+        var transactionTemplate = new TransactionTemplate(new JpaTransactionManager(fabrica));
+        assertEquals("a", marcador());
+
+        shards.naShard("b", () -> transactionTemplate.executeWithoutResult(status -> entityManager
+                .createNativeQuery("insert into marcador(nome) values ('novo')")
+                .executeUpdate()));
+
+        assertEquals(2, contar("b"));
+        assertEquals(1, contar("a"));
+        assertSame(requisicao, ((EntityManagerHolder) TransactionSynchronizationManager.getResource(fabrica))
+                .getEntityManager());
+    }
+
+    @Test
+    void recusaTrocarDeShardDentroDeUmaTransacao() {
+        var transactionTemplate = new TransactionTemplate(new JpaTransactionManager(fabrica));
+
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                shards.naShard("b", this::marcador)));
+    }
+
+    private String marcador() {
+        return (String) entityManager.createNativeQuery("select nome from marcador").getSingleResult();
+    }
+
+    private int contar(String shard) {
+        return new JdbcTemplate(bancos.get(shard)).queryForObject("select count(*) from marcador", Integer.class);
+    }
+
+    private static DataSource banco(String nome) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:shard-jpa-" + nome + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table marcador(nome varchar(10))");
+        jdbcTemplate.update("insert into marcador(nome) values (?)", nome);
+        return dataSource;
+    }
+}
@@ -0,0 +1,136 @@
+package com.filiperobot.aluraforumapi.infra.shard;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardsTest {
+
+    private static final List<String> NOMES = List.of("a", "b", "c");
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private Shards shards;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void configurar() {
+        shards = new Shards(new ShardProperties(true, 2,
+                NOMES.stream().map(nome -> new ShardProperties.No(nome, null, null, null)).toList(),
+                Map.of(20L, "b", 30L, "c")));
+
+        var bancos = new LinkedHashMap<String, DataSource>();
+        NOMES.forEach(nome -> bancos.put(nome, banco(nome)));
+        jdbcTemplate = new JdbcTemplate(new LazyConnectionDataSourceProxy(new ShardRoteamentoDataSource(bancos, "a")));
+
+        // o tópico i do curso 10, 20 ou 30 nasce na hora i, então a ordem global intercala as três shards
+        for (int i = 0; i < 9; i++) {
+            long curso = 10L * (i % 3 + 1);
+            var shard = shards.doCurso(curso);
+            long id = shards.primeiroId(shard) + i;
+            shards.naShard(shard, () -> jdbcTemplate.update("insert into topicos values (?, ?, ?)",
+                    id, curso, Timestamp.valueOf(INICIO.plusHours(id & 0xff))));
+        }
+    }
+
+    @Test
+    void encontraOTopicoNaShardDerivadaDoId() {
+        long id = shards.primeiroId("c") + 5;
+
+        Long curso = shards.naShard(shards.doTopico(id),
+                () -> jdbcTemplate.queryForObject("select curso_id from topicos where id = ?", Long.class, id));
+
+        assertEquals("c", shards.doTopico(id));
+        assertEquals(30L, curso);
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from topicos where id = ?", Integer.class, id));
+    }
+
+    @Test
+    void intercalaListagensDasShardsPorDataDeCriacao() {
+        var listas = shards.emTodas(() -> jdbcTemplate.queryForList(
+                "select data_criacao from topicos order by data_criacao desc limit 5", Timestamp.class));
+
+        var pagina = Shards.intercalar(listas, Comparator.<Timestamp>reverseOrder(), 2, 3);
+
+        assertEquals(List.of(7, 6, 5), pagina.stream()
+                .map(dataCriacao -> (int) Duration.between(INICIO, dataCriacao.toLocalDateTime()).toHours())
+                .toList());
+    }
+
+    @Test
+    void rejeitaIdsDeShardsNaoConfiguradas() {
+        assertThrows(IllegalArgumentException.class, () -> shards.doTopico(shards.primeiroId("c") + (1L << 28)));
+    }
+
+    @Test
+    void paginaNaOrdemPedidaPeloCliente() {
+        var ordem = Sort.by(Sort.Order.asc("cursoId"), Sort.Order.desc("dataCriacao"));
+
+        var pagina = shards.paginar(PageRequest.of(1, 2, ordem), consulta -> {
+            assertEquals(ordem.and(Sort.by("id")), consulta.getSort());
+            var topicos = jdbcTemplate.query("""
+                            select id, curso_id, data_criacao from topicos
+                            order by curso_id, data_criacao desc, id limit ?""",
+                    (rs, rowNum) -> new TopicoListado(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3)),
+                    consulta.getPageSize());
+            return new PageImpl<>(topicos, consulta, 3);
+        }, TopicoListado::getId);
+
+        assertEquals(List.of(shards.primeiroId("a") + 0, shards.primeiroId("b") + 7), pagina.getContent());
+        assertEquals(9, pagina.getTotalElements());
+    }
+
+    @Test
+    void semShardingQualquerIdFicaNaUnicaShard() {
+        var unica = new Shards(new ShardProperties(false, 2, null, null));
+
+        assertEquals(Shards.PRINCIPAL, unica.doTopico(5L << 28));
+        assertTrue(unica.conhecida(5L << 28));
+    }
+
+    public static class TopicoListado {
+        private final Long id;
+        private final Long cursoId;
+        private final Timestamp dataCriacao;
+
+        TopicoListado(Long id, Long cursoId, Timestamp dataCriacao) {
+            this.id = id;
+            this.cursoId = cursoId;
+            this.dataCriacao = dataCriacao;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getCursoId() {
+            return cursoId;
+        }
+
+        public Timestamp getDataCriacao() {
+            return dataCriacao;
+        }
+    }
+
+    private static DataSource banco(String nome) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:shard-" + nome + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute("create table topicos(id bigint primary key, curso_id bigint, data_criacao timestamp)");
+        return dataSource;
+    }
+}
@@ -0,0 +1,98 @@
+package com.filiperobot.aluraforumapi.infra.tempos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemposRequisicaoTest {
+
+    @AfterEach
+    void encerrar() {
+        TemposRequisicao.encerrarRequisicao();
+    }
+
+    @Test
+    void consultaDoControllerSaiDaFaseDeAplicacao() throws InterruptedException {
+        var tempos = TemposRequisicao.iniciarRequisicao();
+
+        tempos.iniciar(Fase.APLICACAO);
+        TimeUnit.MILLISECONDS.sleep(20);
+        tempos.registrarConsulta(TimeUnit.MILLISECONDS.toNanos(5));
+        tempos.encerrar(Fase.APLICACAO);
+
+        var cabecalho = tempos.serverTiming(System.nanoTime());
+
+        assertTrue(cabecalho.contains("db;desc=\"consultas ao banco\";dur=5.000"), cabecalho);
+        assertTrue(millis(cabecalho, "app") >= 15, cabecalho);
+        assertTrue(cabecalho.matches(".*, total;dur=\\d+\\.\\d{3}"), cabecalho);
+        assertFalse(cabecalho.contains("token"), cabecalho);
+    }
+
+    @Test
+    void consultaDaBuscaDoUsuarioFicaNaFaseDoUsuario() {
+        var tempos = TemposRequisicao.iniciarRequisicao();
+
+        tempos.medir(Fase.USUARIO, () -> {
+            tempos.registrarConsulta(TimeUnit.MILLISECONDS.toNanos(3));
+            return null;
+        });
+
+        var cabecalho = tempos.serverTiming(System.nanoTime());
+
+        assertTrue(cabecalho.startsWith("usuario;"), cabecalho);
+        assertFalse(cabecalho.contains("db;"), cabecalho);
+    }
+
+    @Test
+    void ignoraMedicoesForaDeUmaRequisicao() {
+        var tempos = TemposRequisicao.iniciarRequisicao();
+        TemposRequisicao.encerrarRequisicao();
+
+        tempos.medir(Fase.TOKEN, () -> null);
+        tempos.registrarConsulta(TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertFalse(tempos.serverTiming(System.nanoTime()).contains(";desc="));
+    }
+
+    @Test
+    void reiniciaOsTemposACadaRequisicao() {
+        var tempos = TemposRequisicao.iniciarRequisicao();
+        tempos.registrarConsulta(TimeUnit.MILLISECONDS.toNanos(7));
+
+        var proxima = TemposRequisicao.iniciarRequisicao();
+        var registro = proxima.registro("GET", "/topicos", 200, System.nanoTime());
+
+        assertSame(tempos, proxima);
+        assertTrue(registro.startsWith("metodo=GET rota=/topicos status=200 token=0.000 usuario=0.000 db=0.000 "), registro);
+    }
+
+    @Test
+    void foraDeUmaRequisicaoNaoCriaInstanciaPorThread() {
+        var inativa = TemposRequisicao.atual();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var emOutraThread = CompletableFuture.supplyAsync(TemposRequisicao::atual, executor).join();
+            assertSame(inativa, emOutraThread);
+        }
+    }
+
+    @Test
+    void encerrarDesligaAInstanciaDaThread() {
+        var tempos = TemposRequisicao.iniciarRequisicao();
+        TemposRequisicao.encerrarRequisicao();
+
+        assertNotSame(tempos, TemposRequisicao.atual());
+    }
+
+    private static double millis(String cabecalho, String fase) {
+        var matcher = Pattern.compile(fase + ";[^,]*dur=([\\d.]+)").matcher(cabecalho);
+        assertTrue(matcher.find(), cabecalho);
+        return Double.parseDouble(matcher.group(1));
+    }
+}